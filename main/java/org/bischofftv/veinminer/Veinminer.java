@@ -5,12 +5,17 @@ import org.bischofftv.veinminer.achievements.AchievementGUI;
 import org.bischofftv.veinminer.commands.*;
 import org.bischofftv.veinminer.config.ConfigManager;
 import org.bischofftv.veinminer.database.DatabaseManager;
+import org.bischofftv.veinminer.database.MutationJournal;
+import org.bischofftv.veinminer.database.PersistenceService;
+import org.bischofftv.veinminer.leaderboard.LeaderboardService;
 import org.bischofftv.veinminer.gui.MainGUI;
 import org.bischofftv.veinminer.gui.SkillGUI;
 import org.bischofftv.veinminer.gui.TopPlayersGUI;
 import org.bischofftv.veinminer.hooks.WorldGuardHook;
 import org.bischofftv.veinminer.listeners.*;
 import org.bischofftv.veinminer.logging.MiningLogger;
+import org.bischofftv.veinminer.mining.VeinBreakQueue;
+import org.bischofftv.veinminer.mining.VeinMiningStats;
 import org.bischofftv.veinminer.placeholders.VeinMinerPlaceholders;
 import org.bischofftv.veinminer.skills.SkillManager;
 import org.bischofftv.veinminer.utils.*;
@@ -37,9 +42,13 @@ public class Veinminer extends JavaPlugin {
 
     private ConfigManager configManager;
     private PlayerDataManager playerDataManager;
+    private ProfileStagingCache profileStagingCache;
     private MiningLogger miningLogger;
     private MessageManager messageManager;
     private DatabaseManager databaseManager;
+    private PersistenceService persistenceService;
+    private MutationJournal mutationJournal;
+    private LeaderboardService leaderboardService;
     private LevelManager levelManager;
     private AchievementManager achievementManager;
     private AchievementGUI achievementGUI;
@@ -49,9 +58,12 @@ public class Veinminer extends JavaPlugin {
     private TopPlayersGUI topPlayersGUI;
     private VeinMinerPlaceholders placeholderExpansion;
     private BukkitTask autoSaveTask;
+    private BukkitTask writeBehindTask;
     private boolean debugMode;
     private VeinMinerUtils veinMinerUtils;
     private WorldGuardHook worldGuardHook;
+    private VeinBreakQueue veinBreakQueue;
+    private final VeinMiningStats veinMiningStats = new VeinMiningStats();
     private AdminCommand adminCommand;
     private UpdateChecker updateChecker;
 
@@ -220,7 +232,16 @@ public class Veinminer extends JavaPlugin {
         // Initialize managers
         this.messageManager = new MessageManager(this);
         this.databaseManager = new DatabaseManager(this);
+        this.persistenceService = new PersistenceService(this);
+        this.mutationJournal = new MutationJournal(this, new File(getDataFolder(), "journal.dat"));
+        try {
+            mutationJournal.open();
+        } catch (IOException e) {
+            getLogger().severe("Failed to open the mutation journal, changes made during a database outage can be lost: " + e.getMessage());
+        }
         this.playerDataManager = new PlayerDataManager(this);
+        this.profileStagingCache = new ProfileStagingCache(this);
+        this.leaderboardService = new LeaderboardService(this);
         this.levelManager = new LevelManager(this);
         this.achievementManager = new AchievementManager(this);
         this.achievementGUI = new AchievementGUI(this);
@@ -233,6 +254,10 @@ public class Veinminer extends JavaPlugin {
         // Initialize WorldGuard hook
         this.worldGuardHook = new WorldGuardHook(this);
 
+        // Start breaking queued veins
+        this.veinBreakQueue = new VeinBreakQueue(this);
+        veinBreakQueue.start();
+
         // Initialize database
         try {
             databaseManager.initialize();
@@ -247,6 +272,12 @@ public class Veinminer extends JavaPlugin {
             getLogger().warning("Plugin will continue in fallback mode");
         }
 
+        // Write changes that couldn't be saved before the last shutdown
+        mutationJournal.scheduleReplay();
+
+        // Read the stored rankings once, they are kept up to date in memory afterwards
+        leaderboardService.load();
+
         // Debug: Print loaded configuration sections
         if (debugMode) {
             debug("Checking configuration sections:");
@@ -348,15 +379,34 @@ public class Veinminer extends JavaPlugin {
             autoSaveTask.cancel();
             autoSaveTask = null;
         }
+        if (writeBehindTask != null) {
+            writeBehindTask.cancel();
+            writeBehindTask = null;
+        }
 
-        // Save all player data
+        // Finish veins that are still being broken so their stats are saved
+        if (veinBreakQueue != null) {
+            veinBreakQueue.shutdown();
+        }
+
+        // Queue the final save of all player data
         playerDataManager.saveAllData();
 
-        // Save all achievement data
+        // Queue the final save of all achievement data
         if (achievementManager != null) {
             achievementManager.saveAllAchievements();
         }
 
+        // Wait for the queued writes before the connection is closed
+        if (persistenceService != null) {
+            persistenceService.shutdown();
+        }
+
+        // Writes that failed stay in the journal for the next start
+        if (mutationJournal != null) {
+            mutationJournal.close();
+        }
+
         // Unregister PlaceholderAPI expansion if it exists
         if (placeholderExpansion != null) {
             try {
@@ -380,14 +430,14 @@ public class Veinminer extends JavaPlugin {
             if (debugMode) {
                 getLogger().info("[Debug] Manually triggering data synchronization...");
             }
-            databaseManager.synchronizeData();
+            persistenceService.run("synchronize data", databaseManager::synchronizeData);
 
             // Add a delayed second synchronization to ensure changes are applied
             getServer().getScheduler().runTaskLater(this, () -> {
                 if (debugMode) {
                     getLogger().info("[Debug] Running follow-up synchronization...");
                 }
-                databaseManager.synchronizeData();
+                persistenceService.run("synchronize data", databaseManager::synchronizeData);
             }, 10L); // 0.5 seconds later
         }
     }
@@ -398,7 +448,7 @@ public class Veinminer extends JavaPlugin {
             if (debugMode) {
                 getLogger().info("[Debug] Forcing data synchronization across all servers...");
             }
-            databaseManager.forceSyncNow();
+            persistenceService.run("force synchronization", databaseManager::forceSyncNow);
         }
     }
 
@@ -409,6 +459,15 @@ public class Veinminer extends JavaPlugin {
             autoSaveTask.cancel();
             autoSaveTask = null;
         }
+        if (writeBehindTask != null) {
+            writeBehindTask.cancel();
+            writeBehindTask = null;
+        }
+
+        // Check every second whether changed player data should be flushed
+        if (configManager.getWriteBehindFlushInterval() > 0) {
+            writeBehindTask = getServer().getScheduler().runTaskTimer(this, playerDataManager::flushIfDue, 20L, 20L);
+        }
 
         // Get auto-save interval from config (in minutes)
         int intervalMinutes = configManager.getAutoSaveInterval();
@@ -428,7 +487,7 @@ public class Veinminer extends JavaPlugin {
                 getLogger().info("[Debug] Running auto-save task...");
             }
 
-            // Save player data
+            // Save player data (the writes run on the persistence thread)
             playerDataManager.saveAllData();
 
             // Save achievement data
@@ -442,7 +501,7 @@ public class Veinminer extends JavaPlugin {
 
             // Trigger data synchronization
             if (databaseManager != null) {
-                databaseManager.synchronizeData();
+                persistenceService.run("synchronize data", databaseManager::synchronizeData);
 
                 if (debugMode) {
                     getLogger().info("[Debug] Triggered data synchronization.");
@@ -460,7 +519,7 @@ public class Veinminer extends JavaPlugin {
                 if (debugMode) {
                     getLogger().info("[Debug] Running frequent synchronization check...");
                 }
-                databaseManager.synchronizeData();
+                persistenceService.run("synchronize data", databaseManager::synchronizeData);
             }
 
             // Also refresh PlaceholderAPI cache if it exists
@@ -509,6 +568,10 @@ public class Veinminer extends JavaPlugin {
         return playerDataManager;
     }
 
+    public ProfileStagingCache getProfileStagingCache() {
+        return profileStagingCache;
+    }
+
     public MiningLogger getMiningLogger() {
         return miningLogger;
     }
@@ -521,6 +584,18 @@ public class Veinminer extends JavaPlugin {
         return databaseManager;
     }
 
+    public PersistenceService getPersistenceService() {
+        return persistenceService;
+    }
+
+    public MutationJournal getMutationJournal() {
+        return mutationJournal;
+    }
+
+    public LeaderboardService getLeaderboardService() {
+        return leaderboardService;
+    }
+
     public LevelManager getLevelManager() {
         return levelManager;
     }
@@ -569,6 +644,14 @@ public class Veinminer extends JavaPlugin {
         return veinMinerUtils;
     }
 
+    public VeinBreakQueue getVeinBreakQueue() {
+        return veinBreakQueue;
+    }
+
+    public VeinMiningStats getVeinMiningStats() {
+        return veinMiningStats;
+    }
+
     /**
      * Get the WorldGuard hook
      * @return The WorldGuard hook
@@ -755,6 +838,46 @@ public class Veinminer extends JavaPlugin {
             getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.hybrid-blacklist with default tree/leaves blocks");
             configUpdated = true;
         }
+        if (!getConfig().isSet("settings.async-discovery.enabled")) {
+            getConfig().set("settings.async-discovery.enabled", true);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.async-discovery.enabled = true");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.async-discovery.chunk-radius")) {
+            getConfig().set("settings.async-discovery.chunk-radius", 1);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.async-discovery.chunk-radius = 1");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.break-budget.max-micros-per-tick")) {
+            getConfig().set("settings.break-budget.max-micros-per-tick", 2000);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.break-budget.max-micros-per-tick = 2000");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.break-budget.max-blocks-per-tick")) {
+            getConfig().set("settings.break-budget.max-blocks-per-tick", 128);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.break-budget.max-blocks-per-tick = 128");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.search-limits.max-visited")) {
+            getConfig().set("settings.search-limits.max-visited", 4096);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.search-limits.max-visited = 4096");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.search-limits.max-radius")) {
+            getConfig().set("settings.search-limits.max-radius", 32);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.search-limits.max-radius = 32");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.search-limits.max-bounding-box")) {
+            getConfig().set("settings.search-limits.max-bounding-box", 48);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.search-limits.max-bounding-box = 48");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("settings.drops.mode")) {
+            getConfig().set("settings.drops.mode", "NATURAL");
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: settings.drops.mode = NATURAL");
+            configUpdated = true;
+        }
         // WorldGuard section
         if (!getConfig().isSet("worldguard.enabled")) {
             getConfig().set("worldguard.enabled", true);
@@ -840,6 +963,16 @@ public class Veinminer extends JavaPlugin {
             getLogger().warning("[CONFIG UPDATER] Added missing config option: database.reduce-logging = true");
             configUpdated = true;
         }
+        if (!getConfig().isSet("database.write-behind.flush-interval")) {
+            getConfig().set("database.write-behind.flush-interval", 30);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: database.write-behind.flush-interval = 30");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("database.write-behind.max-pending")) {
+            getConfig().set("database.write-behind.max-pending", 100);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: database.write-behind.max-pending = 100");
+            configUpdated = true;
+        }
         // Database pool settings
         if (!getConfig().isSet("database.pool.max-pool-size")) {
             getConfig().set("database.pool.max-pool-size", 10);
@@ -871,6 +1004,11 @@ public class Veinminer extends JavaPlugin {
             getLogger().warning("[CONFIG UPDATER] Added missing config option: database.pool.wait-timeout = 10000");
             configUpdated = true;
         }
+        if (!getConfig().isSet("database.pool.network-timeout")) {
+            getConfig().set("database.pool.network-timeout", 5000);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: database.pool.network-timeout = 5000");
+            configUpdated = true;
+        }
         // GUI section
         if (!getConfig().isSet("gui.show-about")) {
             getConfig().set("gui.show-about", true);
@@ -882,9 +1020,20 @@ public class Veinminer extends JavaPlugin {
             getLogger().warning("[CONFIG UPDATER] Added missing config option: gui.show-top-players = true");
             configUpdated = true;
         }
-        if (!getConfig().isSet("gui.top-players-refresh-interval")) {
-            getConfig().set("gui.top-players-refresh-interval", 5);
-            getLogger().warning("[CONFIG UPDATER] Added missing config option: gui.top-players-refresh-interval = 5");
+        // Leaderboards section
+        if (!getConfig().isSet("leaderboards.size")) {
+            getConfig().set("leaderboards.size", 10);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: leaderboards.size = 10");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("leaderboards.refresh-interval")) {
+            getConfig().set("leaderboards.refresh-interval", 30);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: leaderboards.refresh-interval = 30");
+            configUpdated = true;
+        }
+        if (!getConfig().isSet("leaderboards.reload-interval")) {
+            getConfig().set("leaderboards.reload-interval", 10);
+            getLogger().warning("[CONFIG UPDATER] Added missing config option: leaderboards.reload-interval = 10");
             configUpdated = true;
         }
         // Permissions section
@@ -948,7 +1097,10 @@ public class Veinminer extends JavaPlugin {
      */
     public boolean hasPermission(Player player, String permission) {
         // Check if permissions are required
-        if (!getConfig().getBoolean("permissions.require-permission", false)) {
+        boolean requirePermission = configManager != null
+                ? configManager.getSettings().isRequirePermission()
+                : getConfig().getBoolean("permissions.require-permission", false);
+        if (!requirePermission) {
             return true;
         }
 
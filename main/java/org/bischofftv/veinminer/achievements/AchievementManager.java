@@ -2,6 +2,8 @@ package org.bischofftv.veinminer.achievements;
 
 import org.bischofftv.veinminer.Veinminer;
 import org.bischofftv.veinminer.data.PlayerData;
+import org.bischofftv.veinminer.database.MutationJournal;
+import org.bischofftv.veinminer.utils.ProfileStagingCache;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.Sound;
@@ -9,16 +11,25 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AchievementManager {
 
@@ -53,6 +64,13 @@ public class AchievementManager {
     private Map<String, List<String>> achievementsByType;
     private Map<String, List<String>> achievementsByBlock;
 
+    // Achievements whose progress or claim state changed since the last save, only used on the main thread
+    private final Map<UUID, Set<String>> dirtyAchievements = new HashMap<>();
+    // Progress added since the last save, written as an increment so other servers' progress isn't overwritten
+    private final Map<UUID, Map<String, Integer>> pendingProgress = new HashMap<>();
+    // Players whose completed_achievements counter has to be recounted with the next save
+    private final Set<UUID> completionChanged = new HashSet<>();
+
     public AchievementManager(Veinminer plugin) {
         this.plugin = plugin;
         this.achievementDefinitions = new HashMap<>();
@@ -61,6 +79,7 @@ public class AchievementManager {
         this.customIcons = new HashMap<>();
         this.achievementsByType = new HashMap<>();
         this.achievementsByBlock = new HashMap<>();
+        plugin.getMutationJournal().registerHandler(MutationJournal.TYPE_ACHIEVEMENTS, this::replayAchievementRows);
         loadConfig();
     }
 
@@ -224,26 +243,45 @@ public class AchievementManager {
     }
 
     /**
-     * Load player achievements from the database
+     * Load player achievements from the database without blocking the main thread
      * @param player The player
+     * @return A future completed on the main thread once the achievements are in memory
      */
-    public void loadPlayerAchievements(Player player) {
+    public CompletableFuture<Void> loadPlayerAchievements(Player player) {
         UUID uuid = player.getUniqueId();
+        String playerName = player.getName();
 
-        // Create empty maps for this player
+        // Create empty maps for this player, filled on the persistence thread
         Map<String, Integer> achievements = new HashMap<>();
         Map<String, Boolean> claimed = new HashMap<>();
 
-        // Try to load from database
+        return plugin.getPersistenceService()
+                .run("load achievements for " + playerName, () -> readPlayerAchievements(uuid, playerName, achievements, claimed))
+                .thenRunAsync(() -> {
+                    // Don't keep achievements for players who left while they were loading
+                    if (player.isOnline()) {
+                        applyPlayerAchievements(uuid, playerName, achievements, claimed);
+                    }
+                }, plugin.getPersistenceService().mainThread());
+    }
+
+    /**
+     * Read player achievements from the database. Runs on the persistence thread.
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @param achievements The map to fill with progress
+     * @param claimed The map to fill with claimed rewards
+     */
+    public void readPlayerAchievements(UUID uuid, String playerName, Map<String, Integer> achievements, Map<String, Boolean> claimed) {
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().checkConnection()) {
             Connection connection = null;
             PreparedStatement statement = null;
             ResultSet resultSet = null;
             
             try {
-                connection = plugin.getDatabaseManager().getConnection();
+                connection = plugin.getDatabaseManager().getReadConnection();
                 String sql = "SELECT * FROM " + plugin.getDatabaseManager().getTablePrefix() + "achievements WHERE uuid = ?";
-                statement = connection.prepareStatement(sql);
+                statement = plugin.getDatabaseManager().prepareCached(connection, sql);
                 statement.setString(1, uuid.toString());
 
                 resultSet = statement.executeQuery();
@@ -270,20 +308,36 @@ public class AchievementManager {
                     
                     if (plugin.isDebugMode()) {
                         plugin.getLogger().info("[Debug] Loaded achievement " + achievementId + 
-                                " for " + player.getName() + ": progress=" + progress + 
+                                " for " + playerName + ": progress=" + progress + 
                                 ", completed=" + completed + ", claimed=" + rewardClaimed);
                     }
                 }
             } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to load achievements for " + player.getName() + ": " + e.getMessage());
+                plugin.getLogger().warning("Failed to load achievements for " + playerName + ": " + e.getMessage());
                 if (plugin.isDebugMode()) {
                     e.printStackTrace();
                 }
             } finally {
                 // Close resources properly
-                plugin.getDatabaseManager().closeResources(resultSet, statement, connection);
+                plugin.getDatabaseManager().closeResources(resultSet, null, connection);
+                plugin.getDatabaseManager().releaseStatement(statement);
             }
         }
+    }
+
+    /**
+     * Put loaded achievements into memory and add any achievements defined since the last save
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @param achievements The loaded progress
+     * @param claimed The loaded claimed rewards
+     */
+    public void applyPlayerAchievements(UUID uuid, String playerName, Map<String, Integer> achievements, Map<String, Boolean> claimed) {
+        // Progress that hasn't been written yet isn't in the loaded values
+        Map<String, Integer> pending = pendingProgress.get(uuid);
+        if (pending != null) {
+            pending.forEach((achievementId, delta) -> achievements.merge(achievementId, delta, Integer::sum));
+        }
 
         // Add to maps
         playerAchievements.put(uuid, achievements);
@@ -297,107 +351,308 @@ public class AchievementManager {
                 
                 if (plugin.isDebugMode()) {
                     plugin.getLogger().info("[Debug] Added new achievement " + achievementId + 
-                            " for " + player.getName() + " with default values");
+                            " for " + playerName + " with default values");
                 }
             }
         }
 
+        plugin.getLeaderboardService().updateAchievements(uuid, playerName, getCompletedCount(uuid));
+
         // Debug log
         if (plugin.isDebugMode()) {
-            plugin.debug("Loaded " + achievements.size() + " achievements for " + player.getName());
+            plugin.debug("Loaded " + achievements.size() + " achievements for " + playerName);
         }
     }
 
     /**
-     * Save player achievements to the database
+     * Save a player's changed achievements to the database without blocking the main thread.
+     * Nothing is written if no progress or claim state changed since the last save.
      * @param uuid The player UUID
+     * @return A future completed once the achievements have been written
      */
-    public void savePlayerAchievements(UUID uuid) {
-        Map<String, Integer> achievements = playerAchievements.get(uuid);
-        Map<String, Boolean> claimed = claimedRewards.get(uuid);
+    public CompletableFuture<Void> savePlayerAchievements(UUID uuid) {
+        List<AchievementRow> rows = new ArrayList<>();
+        collectDirtyRows(uuid, rows);
+        return writeRows(rows);
+    }
+
+    /**
+     * Save the changed achievements of all players in one batch without blocking the main thread
+     * @return A future completed once all achievements have been written
+     */
+    public CompletableFuture<Void> saveAllAchievements() {
+        List<AchievementRow> rows = new ArrayList<>();
+        for (UUID uuid : new ArrayList<>(dirtyAchievements.keySet())) {
+            collectDirtyRows(uuid, rows);
+        }
+        return writeRows(rows);
+    }
+
+    /**
+     * Remember that an achievement's progress or claim state changed
+     * @param uuid The player UUID
+     * @param achievementId The achievement ID
+     */
+    private void markDirty(UUID uuid, String achievementId) {
+        dirtyAchievements.computeIfAbsent(uuid, key -> new HashSet<>()).add(achievementId);
+    }
 
-        if (achievements == null || claimed == null) {
+    /**
+     * Snapshot a player's changed achievements and clear their dirty flags
+     * @param uuid The player UUID
+     * @param rows The list to add the rows to
+     */
+    private void collectDirtyRows(UUID uuid, List<AchievementRow> rows) {
+        Set<String> dirty = dirtyAchievements.remove(uuid);
+        if (dirty == null) {
             return;
         }
+        Map<String, Integer> pending = pendingProgress.remove(uuid);
+        boolean recount = completionChanged.remove(uuid);
+        String playerName = getStoredPlayerName(uuid);
 
-        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().checkConnection()) {
-            Connection connection = null;
-            PreparedStatement deleteStatement = null;
-            PreparedStatement insertStatement = null;
-            
-            try {
-                connection = plugin.getDatabaseManager().getConnection();
+        Map<String, Integer> achievements = playerAchievements.getOrDefault(uuid, new HashMap<>());
+        Map<String, Boolean> claimed = claimedRewards.getOrDefault(uuid, new HashMap<>());
+        for (String achievementId : dirty) {
+            int progress = achievements.getOrDefault(achievementId, 0);
+            int progressDelta = pending != null ? pending.getOrDefault(achievementId, 0) : 0;
 
-                // First delete existing achievements for this player
-                String deleteSql = "DELETE FROM " + plugin.getDatabaseManager().getTablePrefix() + "achievements WHERE uuid = ?";
-                deleteStatement = connection.prepareStatement(deleteSql);
-                deleteStatement.setString(1, uuid.toString());
-                deleteStatement.executeUpdate();
+            // Check if achievement is completed, on the main thread where the definitions are safe to read
+            Map<String, Object> definition = achievementDefinitions.get(achievementId);
+            boolean completed = definition != null && progress >= (int) definition.get("amount");
 
-                // Then insert new achievements
-                String insertSql = "INSERT INTO " + plugin.getDatabaseManager().getTablePrefix() +
-                        "achievements (uuid, achievement_id, progress, completed, reward_claimed) VALUES (?, ?, ?, ?, ?)";
-                insertStatement = connection.prepareStatement(insertSql);
+            rows.add(new AchievementRow(uuid, playerName, achievementId, progressDelta, completed, claimed.getOrDefault(achievementId, false), recount));
+        }
+    }
 
-                for (Map.Entry<String, Integer> entry : achievements.entrySet()) {
-                    String achievementId = entry.getKey();
-                    int progress = entry.getValue();
+    /**
+     * Get the name to store with a player's player_data row if the achievements write creates it
+     * @param uuid The player UUID
+     * @return The player name
+     */
+    private String getStoredPlayerName(UUID uuid) {
+        PlayerData playerData = plugin.getPlayerDataManager().getPlayerData(uuid);
+        if (playerData != null) {
+            return playerData.getPlayerName();
+        }
+        String name = Bukkit.getOfflinePlayer(uuid).getName();
+        // The column is NOT NULL, the next player data save writes the real name
+        return name != null ? name : uuid.toString().substring(0, 16);
+    }
 
-                    // Check if achievement is completed
-                    boolean completed = false;
-                    int requiredAmount = 1;
-                    if (achievementDefinitions.containsKey(achievementId)) {
-                        requiredAmount = (int) achievementDefinitions.get(achievementId).get("amount");
-                        completed = progress >= requiredAmount;
-                    }
+    /**
+     * Queue rows to be upserted in one transaction. The rows are recorded in the mutation journal first
+     * and replayed from there if the write fails, without a journal they are marked dirty again instead.
+     * @param rows The rows
+     * @return A future completed once the rows have been written
+     */
+    private CompletableFuture<Void> writeRows(List<AchievementRow> rows) {
+        if (rows.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
 
-                    // Check if reward is claimed
-                    boolean rewardClaimed = claimed.getOrDefault(achievementId, false);
+        MutationJournal journal = plugin.getMutationJournal();
+        AtomicLong batchId = new AtomicLong(-1);
 
-                    // Debug-Ausgabe
-                    if (plugin.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] savePlayerAchievements: " + uuid + ", " + achievementId + ", progress=" + progress + ", required=" + requiredAmount + ", completed=" + completed + ", claimed=" + rewardClaimed);
+        // Profiles preloaded for these players may miss this write
+        ProfileStagingCache stagingCache = plugin.getProfileStagingCache();
+        Set<UUID> players = new HashSet<>();
+        for (AchievementRow row : rows) {
+            players.add(row.uuid);
+        }
+        for (UUID uuid : players) {
+            stagingCache.saveQueued(uuid);
+        }
+        return plugin.getPersistenceService()
+                .run("save achievements", () -> {
+                    batchId.set(journal.append(MutationJournal.TYPE_ACHIEVEMENTS, encodeRows(rows)));
+                    try {
+                        journal.replayPending(batchId.get());
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to replay the mutation journal: " + e.getMessage(), e);
+                    }
+                    writeAchievementRows(rows);
+                    journal.markApplied(batchId.get());
+                })
+                .whenCompleteAsync((result, error) -> {
+                    for (UUID uuid : players) {
+                        stagingCache.saveFinished(uuid);
+                    }
+                    if (error != null && batchId.get() < 0) {
+                        // The flags are read again on the next save, only the increments need to be kept
+                        for (AchievementRow row : rows) {
+                            markDirty(row.uuid, row.achievementId);
+                            addPendingProgress(row.uuid, row.achievementId, row.progressDelta);
+                            if (row.recount) {
+                                completionChanged.add(row.uuid);
+                            }
+                        }
                     }
+                }, plugin.getPersistenceService().mainThread());
+    }
 
-                    insertStatement.setString(1, uuid.toString());
-                    insertStatement.setString(2, achievementId);
-                    insertStatement.setInt(3, progress);
-                    // Handle boolean values differently for SQLite
-                    if (plugin.getDatabaseManager().isFallbackMode()) {
-                        insertStatement.setInt(4, completed ? 1 : 0);
-                        insertStatement.setInt(5, rewardClaimed ? 1 : 0);
-                    } else {
-                        insertStatement.setBoolean(4, completed);
-                        insertStatement.setBoolean(5, rewardClaimed);
+    /**
+     * Encode rows for the mutation journal
+     * @param rows The rows
+     * @return The encoded batch
+     */
+    private byte[] encodeRows(List<AchievementRow> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(rows.size());
+            for (AchievementRow row : rows) {
+                out.writeLong(row.uuid.getMostSignificantBits());
+                out.writeLong(row.uuid.getLeastSignificantBits());
+                out.writeUTF(row.playerName);
+                out.writeUTF(row.achievementId);
+                out.writeInt(row.progressDelta);
+                out.writeBoolean(row.completed);
+                out.writeBoolean(row.rewardClaimed);
+            }
+        } catch (IOException e) {
+            // Can't happen with an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a batch from the mutation journal. Runs on the persistence thread.
+     * @param payload The batch from encodeRows
+     * @throws IOException If the batch can't be decoded
+     */
+    private void replayAchievementRows(byte[] payload) throws IOException {
+        List<AchievementRow> rows = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String playerName = in.readUTF();
+                String achievementId = in.readUTF();
+                int progressDelta = in.readInt();
+                boolean completed = in.readBoolean();
+                // The journal doesn't record which players crossed a threshold, recounting any completed row is safe
+                rows.add(new AchievementRow(uuid, playerName, achievementId, progressDelta, completed, in.readBoolean(), completed));
+            }
+        }
+        // Progress is added and flags are never cleared, so the rows can be written like a normal save
+        writeAchievementRows(rows);
+    }
+
+    /**
+     * Remember progress that still has to be added to the stored progress
+     * @param uuid The player UUID
+     * @param achievementId The achievement ID
+     * @param progress The progress to add
+     */
+    private void addPendingProgress(UUID uuid, String achievementId, int progress) {
+        if (progress != 0) {
+            pendingProgress.computeIfAbsent(uuid, key -> new HashMap<>()).merge(achievementId, progress, Integer::sum);
+        }
+    }
+
+    /**
+     * Upsert achievement rows as one JDBC batch in a single transaction. Runs on the persistence thread.
+     * Progress is added to the stored progress, and completed or claimed flags are never cleared,
+     * so rows written by several servers add up. The completed_achievements counter of players whose
+     * completion changed is recounted in the same transaction, which stays correct when a batch is
+     * replayed or another server completed the same achievement. The player_data row is created if
+     * it doesn't exist yet, so a new player's counter isn't lost.
+     * @param rows The rows
+     */
+    private void writeAchievementRows(List<AchievementRow> rows) {
+        boolean sqlite = plugin.getDatabaseManager().isFallbackMode();
+        String prefix = plugin.getDatabaseManager().getTablePrefix();
+        String countSql = "INSERT INTO " + prefix + "player_data (uuid, player_name, completed_achievements) VALUES (?, ?, " +
+                "(SELECT COUNT(*) FROM " + prefix + "achievements WHERE uuid = ? AND completed = 1)) " +
+                (sqlite
+                        ? "ON CONFLICT(uuid) DO UPDATE SET completed_achievements = excluded.completed_achievements"
+                        : "ON DUPLICATE KEY UPDATE completed_achievements = VALUES(completed_achievements)");
+        String sql = "INSERT INTO " + prefix +
+                "achievements (uuid, achievement_id, progress, completed, reward_claimed) VALUES (?, ?, ?, ?, ?) " +
+                (sqlite
+                        ? "ON CONFLICT(uuid, achievement_id) DO UPDATE SET progress = progress + excluded.progress, " +
+                          "completed = max(completed, excluded.completed), reward_claimed = max(reward_claimed, excluded.reward_claimed)"
+                        : "ON DUPLICATE KEY UPDATE progress = progress + VALUES(progress), " +
+                          "completed = GREATEST(completed, VALUES(completed)), reward_claimed = GREATEST(reward_claimed, VALUES(reward_claimed))");
+
+        try {
+            plugin.getDatabaseManager().executeInTransaction(connection -> {
+                PreparedStatement statement = plugin.getDatabaseManager().prepareCached(connection, sql);
+                try {
+                    for (AchievementRow row : rows) {
+                        // Debug-Ausgabe
+                        if (plugin.isDebugMode()) {
+                            plugin.getLogger().info("[Debug] savePlayerAchievements: " + row.uuid + ", " + row.achievementId +
+                                    ", progress+=" + row.progressDelta + ", completed=" + row.completed + ", claimed=" + row.rewardClaimed);
+                        }
+
+                        statement.setString(1, row.uuid.toString());
+                        statement.setString(2, row.achievementId);
+                        statement.setInt(3, row.progressDelta);
+                        // Handle boolean values differently for SQLite
+                        if (sqlite) {
+                            statement.setInt(4, row.completed ? 1 : 0);
+                            statement.setInt(5, row.rewardClaimed ? 1 : 0);
+                        } else {
+                            statement.setBoolean(4, row.completed);
+                            statement.setBoolean(5, row.rewardClaimed);
+                        }
+                        statement.addBatch();
                     }
-                    insertStatement.addBatch();
+                    statement.executeBatch();
+                } finally {
+                    plugin.getDatabaseManager().releaseStatement(statement);
                 }
 
-                insertStatement.executeBatch();
-
-                // Debug log
-                if (plugin.isDebugMode()) {
-                    plugin.debug("Saved achievements for player " + uuid);
+                Map<UUID, String> recount = new HashMap<>();
+                for (AchievementRow row : rows) {
+                    if (row.recount) {
+                        recount.put(row.uuid, row.playerName);
+                    }
                 }
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to save achievements for " + uuid + ": " + e.getMessage());
-                if (plugin.isDebugMode()) {
-                    e.printStackTrace();
+                if (!recount.isEmpty()) {
+                    PreparedStatement countStatement = plugin.getDatabaseManager().prepareCached(connection, countSql);
+                    try {
+                        for (Map.Entry<UUID, String> player : recount.entrySet()) {
+                            countStatement.setString(1, player.getKey().toString());
+                            countStatement.setString(2, player.getValue());
+                            countStatement.setString(3, player.getKey().toString());
+                            countStatement.addBatch();
+                        }
+                        countStatement.executeBatch();
+                    } finally {
+                        plugin.getDatabaseManager().releaseStatement(countStatement);
+                    }
                 }
-            } finally {
-                plugin.getDatabaseManager().closeResources(null, deleteStatement, null);
-                plugin.getDatabaseManager().closeResources(null, insertStatement, connection);
+                return null;
+            });
+
+            // Debug log
+            if (plugin.isDebugMode()) {
+                plugin.debug("Saved " + rows.size() + " changed achievements");
             }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save " + rows.size() + " achievements: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Save all player achievements to the database
+     * Recompute the completed_achievements counter of every player from the achievements table,
+     * e.g. after rows were edited by hand. Unsaved achievements are written first.
+     * @return A future completed with the number of players whose counter was recomputed
      */
-    public void saveAllAchievements() {
-        for (UUID uuid : playerAchievements.keySet()) {
-            savePlayerAchievements(uuid);
-        }
+    public CompletableFuture<Integer> repairCompletedCounts() {
+        saveAllAchievements();
+
+        // Queued after the save above, the persistence thread runs tasks in order
+        return plugin.getPersistenceService().supply("repair completed achievement counts", () -> {
+            try {
+                return plugin.getDatabaseManager().executeInTransaction(plugin.getDatabaseManager()::recountCompletedAchievements);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to repair completed achievement counts: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -420,6 +675,27 @@ public class AchievementManager {
         return claimedRewards.getOrDefault(uuid, new HashMap<>());
     }
 
+    /**
+     * Get the number of achievements a loaded player has completed
+     * @param uuid The player UUID
+     * @return The number of completed achievements
+     */
+    public int getCompletedCount(UUID uuid) {
+        Map<String, Integer> achievements = playerAchievements.get(uuid);
+        if (achievements == null) {
+            return 0;
+        }
+
+        int completed = 0;
+        for (Map.Entry<String, Integer> entry : achievements.entrySet()) {
+            Map<String, Object> definition = achievementDefinitions.get(entry.getKey());
+            if (definition != null && entry.getValue() >= (int) definition.get("amount")) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
     /**
      * Update achievement progress for a player
      * @param player The player
@@ -437,12 +713,16 @@ public class AchievementManager {
         int newProgress = currentProgress + progress;
         achievements.put(achievementId, newProgress);
         playerAchievements.put(uuid, achievements);
+        markDirty(uuid, achievementId);
+        addPendingProgress(uuid, achievementId, progress);
 
         // Check if achievement is completed
         int requiredAmount = (int) achievementDefinitions.get(achievementId).get("amount");
         if (currentProgress < requiredAmount && newProgress >= requiredAmount) {
             // Achievement newly completed
             String achievementName = (String) achievementDefinitions.get(achievementId).get("name");
+            completionChanged.add(uuid);
+            plugin.getLeaderboardService().updateAchievements(uuid, player.getName(), getCompletedCount(uuid));
 
             // Notify player
             if (notifyInChat) {
@@ -720,6 +1000,7 @@ public class AchievementManager {
         // Mark rewards as claimed
         claimed.put(achievementId, true);
         claimedRewards.put(uuid, claimed);
+        markDirty(uuid, achievementId);
 
         // Send message
         String claimedMsg = plugin.getMessageManager().getMessage("gui.achievements-claimed", null);
@@ -799,99 +1080,28 @@ public class AchievementManager {
     }
 
     /**
-     * Batch update achievement progress for multiple players
-     * @param updates Map of player UUID to achievement updates
+     * A snapshot of one achievement row, taken on the main thread
      */
-    public void batchUpdateAchievements(Map<UUID, Map<String, Integer>> updates) {
-        if (!enabled || updates.isEmpty()) {
-            return;
-        }
-
-        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().checkConnection()) {
-            Connection connection = null;
-            PreparedStatement statement = null;
-            
-            try {
-                connection = plugin.getDatabaseManager().getConnection();
-                connection.setAutoCommit(false);
-                
-                String sql = "INSERT INTO " + plugin.getDatabaseManager().getTablePrefix() +
-                        "achievements (uuid, achievement_id, progress, completed, reward_claimed) VALUES (?, ?, ?, ?, ?) " +
-                        "ON DUPLICATE KEY UPDATE progress = VALUES(progress), completed = VALUES(completed)";
-                
-                // SQLite doesn't support ON DUPLICATE KEY UPDATE
-                if (plugin.getDatabaseManager().isFallbackMode()) {
-                    sql = "INSERT OR REPLACE INTO " + plugin.getDatabaseManager().getTablePrefix() +
-                            "achievements (uuid, achievement_id, progress, completed, reward_claimed) VALUES (?, ?, ?, ?, ?)";
-                }
-                
-                statement = connection.prepareStatement(sql);
-                
-                for (Map.Entry<UUID, Map<String, Integer>> playerEntry : updates.entrySet()) {
-                    UUID uuid = playerEntry.getKey();
-                    Map<String, Integer> achievementUpdates = playerEntry.getValue();
-                    
-                    for (Map.Entry<String, Integer> achievementEntry : achievementUpdates.entrySet()) {
-                        String achievementId = achievementEntry.getKey();
-                        int progress = achievementEntry.getValue();
-                        
-                        // Check if achievement is completed
-                        boolean completed = false;
-                        if (achievementDefinitions.containsKey(achievementId)) {
-                            int requiredAmount = (int) achievementDefinitions.get(achievementId).get("amount");
-                            completed = progress >= requiredAmount;
-                        }
-                        
-                        // Check if reward is claimed
-                        Map<String, Boolean> claimed = claimedRewards.getOrDefault(uuid, new HashMap<>());
-                        boolean rewardClaimed = claimed.getOrDefault(achievementId, false);
-                        
-                        statement.setString(1, uuid.toString());
-                        statement.setString(2, achievementId);
-                        statement.setInt(3, progress);
-                        
-                        // Handle boolean values differently for SQLite
-                        if (plugin.getDatabaseManager().isFallbackMode()) {
-                            statement.setInt(4, completed ? 1 : 0);
-                            statement.setInt(5, rewardClaimed ? 1 : 0);
-                        } else {
-                            statement.setBoolean(4, completed);
-                            statement.setBoolean(5, rewardClaimed);
-                        }
-                        
-                        statement.addBatch();
-                    }
-                }
-                
-                statement.executeBatch();
-                connection.commit();
-                
-                if (plugin.isDebugMode()) {
-                    plugin.getLogger().info("[Debug] Batch updated achievements for " + updates.size() + " players");
-                }
-                
-            } catch (SQLException e) {
-                try {
-                    if (connection != null) {
-                        connection.rollback();
-                    }
-                } catch (SQLException rollbackEx) {
-                    plugin.getLogger().warning("Failed to rollback batch achievement update: " + rollbackEx.getMessage());
-                }
-                plugin.getLogger().warning("Failed to batch update achievements: " + e.getMessage());
-                if (plugin.isDebugMode()) {
-                    e.printStackTrace();
-                }
-            } finally {
-                try {
-                    if (connection != null) {
-                        connection.setAutoCommit(true);
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().warning("Failed to reset auto-commit: " + e.getMessage());
-                }
-                plugin.getDatabaseManager().closeResources(null, statement, connection);
-            }
+    private static final class AchievementRow {
+        private final UUID uuid;
+        // Stored if the player's player_data row has to be created
+        private final String playerName;
+        private final String achievementId;
+        // Progress added since the last save
+        private final int progressDelta;
+        private final boolean completed;
+        private final boolean rewardClaimed;
+        // Recount the player's completed_achievements after writing
+        private final boolean recount;
+
+        private AchievementRow(UUID uuid, String playerName, String achievementId, int progressDelta, boolean completed, boolean rewardClaimed, boolean recount) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.achievementId = achievementId;
+            this.progressDelta = progressDelta;
+            this.completed = completed;
+            this.rewardClaimed = rewardClaimed;
+            this.recount = recount;
         }
     }
 }
\ No newline at end of file
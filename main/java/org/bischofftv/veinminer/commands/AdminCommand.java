@@ -1,6 +1,11 @@
 package org.bischofftv.veinminer.commands;
 
 import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.database.DatabaseHealthMonitor;
+import org.bischofftv.veinminer.database.DatabaseManager;
+import org.bischofftv.veinminer.mining.VeinBreakQueue;
+import org.bischofftv.veinminer.mining.VeinMiningStats;
+import org.bischofftv.veinminer.mining.VeinSearchResult;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -22,7 +27,7 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
 
     private final Veinminer plugin;
     private final List<String> subCommands = Arrays.asList(
-            "reload", "debug", "sync", "reset", "check", "mysql", "reload-player", "repair-database"
+            "reload", "debug", "sync", "reset", "check", "mysql", "reload-player", "repair-database", "repair-achievements", "stats"
     );
 
     public AdminCommand(Veinminer plugin) {
@@ -55,6 +60,7 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                 plugin.getLevelManager().loadConfig();
                 plugin.getSkillManager().loadConfig();
                 plugin.getAchievementManager().loadConfig();
+                plugin.getLeaderboardService().loadConfig();
                 plugin.restartAutoSaveTask();
                 sender.sendMessage(ChatColor.GREEN + "VeinMiner configuration has been reloaded.");
                 return true;
@@ -92,8 +98,8 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
 
                 // Reset player data
                 plugin.getPlayerDataManager().removePlayerData(targetPlayer.getUniqueId());
-                plugin.getPlayerDataManager().loadPlayerData(targetPlayer);
-                sender.sendMessage(ChatColor.GREEN + "Player data has been reset for " + targetPlayer.getName() + ".");
+                plugin.getPlayerDataManager().loadPlayerData(targetPlayer).thenRun(() ->
+                        sender.sendMessage(ChatColor.GREEN + "Player data has been reset for " + targetPlayer.getName() + "."));
                 return true;
 
             case "check":
@@ -146,9 +152,30 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                     return true;
                 } else if (mysqlCommand.equals("check")) {
                     // Check MySQL connection
-                    boolean connected = plugin.getDatabaseManager().checkConnection();
+                    DatabaseManager databaseManager = plugin.getDatabaseManager();
+                    boolean connected = databaseManager.checkConnection();
                     sender.sendMessage(ChatColor.GREEN + "MySQL connection: " + (connected ? "Connected" : "Disconnected"));
 
+                    DatabaseHealthMonitor healthMonitor = databaseManager.getHealthMonitor();
+                    if (healthMonitor != null) {
+                        long lastCheckAgo = (System.currentTimeMillis() - healthMonitor.getLastCheckMillis()) / 1000;
+                        sender.sendMessage(ChatColor.YELLOW + "Health check: " + ChatColor.WHITE + "last " + lastCheckAgo + "s ago, next in "
+                                + (healthMonitor.getMillisUntilNextCheck() / 1000) + "s"
+                                + (healthMonitor.isHealthy() ? "" : ChatColor.RED + " (" + healthMonitor.getConsecutiveFailures() + " failed checks)"));
+                    }
+
+                    // Connection pool statistics
+                    if (databaseManager.hasConnectionPool()) {
+                        sender.sendMessage(ChatColor.YELLOW + "Pool connections: " + ChatColor.WHITE + databaseManager.getActiveConnections() + " active, "
+                                + databaseManager.getIdleConnections() + " idle, " + databaseManager.getTotalConnections() + "/" + databaseManager.getMaxPoolSize() + " total");
+                        sender.sendMessage(ChatColor.YELLOW + "Threads waiting: " + ChatColor.WHITE + databaseManager.getThreadsAwaitingConnection());
+                        sender.sendMessage(ChatColor.YELLOW + "Acquisition time: " + ChatColor.WHITE
+                                + String.format("avg %.1f ms, max %.1f ms", databaseManager.getAverageAcquireMillis(), databaseManager.getMaxAcquireMillis())
+                                + ChatColor.GRAY + " (" + databaseManager.getConnectionsAcquired() + " borrowed)");
+                    } else {
+                        sender.sendMessage(ChatColor.YELLOW + "Using SQLite, no connection pool.");
+                    }
+
                     // Check player data in database
                     if (args.length >= 3) {
                         Player dbPlayer = Bukkit.getPlayer(args[2]);
@@ -184,14 +211,18 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                 }
 
                 // Force reload player data
-                plugin.getPlayerDataManager().forceReloadPlayerData(reloadPlayer);
-                sender.sendMessage(ChatColor.GREEN + "Player data has been force reloaded for " + reloadPlayer.getName() + ".");
+                plugin.getPlayerDataManager().forceReloadPlayerData(reloadPlayer).thenRun(() ->
+                        sender.sendMessage(ChatColor.GREEN + "Player data has been force reloaded for " + reloadPlayer.getName() + "."));
                 return true;
 
             case "repair-database":
-                // Repair database tables
-                boolean success = repairDatabase();
-                if (success) {
+                // Repair database tables on the persistence thread, which owns the write connection
+                sender.sendMessage(ChatColor.YELLOW + "Repairing database tables...");
+                plugin.getPersistenceService().supply("repair database", this::repairDatabase).whenCompleteAsync((success, error) -> {
+                    if (error != null || !success) {
+                        sender.sendMessage(ChatColor.RED + "Failed to repair database tables. Check console for details.");
+                        return;
+                    }
                     sender.sendMessage(ChatColor.GREEN + "Database tables have been repaired successfully.");
 
                     // Reload online players' data
@@ -200,8 +231,55 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                     }
 
                     sender.sendMessage(ChatColor.GREEN + "Player data has been reloaded for all online players.");
-                } else {
-                    sender.sendMessage(ChatColor.RED + "Failed to repair database tables. Check console for details.");
+                }, plugin.getPersistenceService().mainThread());
+                return true;
+
+            case "repair-achievements":
+                // Recompute the completed achievements counters used by the leaderboard
+                sender.sendMessage(ChatColor.YELLOW + "Recounting completed achievements...");
+                plugin.getAchievementManager().repairCompletedCounts().whenCompleteAsync((players, error) -> {
+                    if (error != null) {
+                        // The persistence service already logged the cause
+                        sender.sendMessage(ChatColor.RED + "Failed to recount completed achievements. Check console for details.");
+                        return;
+                    }
+
+                    // Pick up the corrected counters of players who aren't online
+                    plugin.getLeaderboardService().reload();
+                    sender.sendMessage(ChatColor.GREEN + "Completed achievements have been recounted for " + players + " players.");
+                }, plugin.getPersistenceService().mainThread());
+                return true;
+
+            case "stats":
+                // Vein break scheduler statistics
+                VeinBreakQueue queue = plugin.getVeinBreakQueue();
+                if (args.length >= 2 && args[1].equalsIgnoreCase("reset")) {
+                    queue.resetStats();
+                    plugin.getVeinMiningStats().reset();
+                    sender.sendMessage(ChatColor.GREEN + "Vein break statistics have been reset.");
+                    return true;
+                }
+
+                sender.sendMessage(ChatColor.GREEN + "=== Vein Break Scheduler ===");
+                sender.sendMessage(ChatColor.YELLOW + "Queued veins: " + ChatColor.WHITE + queue.getQueuedJobs()
+                        + ChatColor.GRAY + " (peak " + queue.getPeakQueuedJobs() + ")");
+                sender.sendMessage(ChatColor.YELLOW + "Players waiting: " + ChatColor.WHITE + queue.getActivePlayers());
+                sender.sendMessage(ChatColor.YELLOW + "Pending blocks: " + ChatColor.WHITE + queue.getPendingBlocks());
+                sender.sendMessage(ChatColor.YELLOW + "Veins completed: " + ChatColor.WHITE + queue.getJobsCompleted()
+                        + "/" + queue.getJobsSubmitted());
+                sender.sendMessage(ChatColor.YELLOW + "Blocks broken: " + ChatColor.WHITE + queue.getBlocksBroken());
+                sender.sendMessage(ChatColor.YELLOW + "Wait time: " + ChatColor.WHITE
+                        + String.format("avg %.1f ms, max %.1f ms", queue.getAverageWaitMillis(), queue.getMaxWaitMillis()));
+
+                VeinMiningStats miningStats = plugin.getVeinMiningStats();
+                sender.sendMessage(ChatColor.GREEN + "=== Vein Search ===");
+                sender.sendMessage(ChatColor.YELLOW + "Searches: " + ChatColor.WHITE + miningStats.getSearches());
+                sender.sendMessage(ChatColor.YELLOW + "Stopped at unloaded chunk borders: " + ChatColor.WHITE + miningStats.getChunkBorderTruncations());
+                sender.sendMessage(ChatColor.YELLOW + "Blocks skipped (chunk unloaded): " + ChatColor.WHITE + miningStats.getUnloadedBlocksSkipped());
+                sender.sendMessage(ChatColor.YELLOW + "Average positions checked: " + ChatColor.WHITE + String.format("%.1f", miningStats.getAverageVisited()));
+                for (VeinSearchResult.StopReason reason : VeinSearchResult.StopReason.values()) {
+                    sender.sendMessage(ChatColor.YELLOW + "Stopped by " + reason.name().toLowerCase().replace('_', '-') + ": "
+                            + ChatColor.WHITE + miningStats.getStopCount(reason));
                 }
                 return true;
 
@@ -232,6 +310,10 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
                         completions.add(player.getName());
                     }
                 }
+            } else if (args[0].equalsIgnoreCase("stats")) {
+                if ("reset".startsWith(args[1].toLowerCase())) {
+                    completions.add("reset");
+                }
             } else if (args[0].equalsIgnoreCase("mysql")) {
                 // Suggest MySQL subcommands
                 List<String> mysqlCommands = Arrays.asList("reload", "check");
@@ -270,10 +352,12 @@ public class AdminCommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(ChatColor.YELLOW + "/vmadmin mysql check [player]" + ChatColor.WHITE + " - Check MySQL connection and player data");
         sender.sendMessage(ChatColor.YELLOW + "/vmadmin reload-player <player>" + ChatColor.WHITE + " - Force reload player data from database");
         sender.sendMessage(ChatColor.YELLOW + "/vmadmin repair-database" + ChatColor.WHITE + " - Repair database tables");
+        sender.sendMessage(ChatColor.YELLOW + "/vmadmin repair-achievements" + ChatColor.WHITE + " - Recount completed achievements for the leaderboard");
+        sender.sendMessage(ChatColor.YELLOW + "/vmadmin stats [reset]" + ChatColor.WHITE + " - Show vein break scheduler statistics");
     }
 
     /**
-     * Repair database tables
+     * Repair database tables. Runs on the persistence thread.
      * @return True if successful, false otherwise
      */
     private boolean repairDatabase() {
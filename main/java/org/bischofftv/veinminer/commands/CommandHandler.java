@@ -108,6 +108,7 @@ public class CommandHandler implements CommandExecutor {
                 }
 
                 plugin.reloadConfig();
+                plugin.getConfigManager().loadConfig();
                 plugin.getMessageManager().reload();
                 player.sendMessage(plugin.getMessageManager().formatMessage("messages.reload.success"));
                 return true;
@@ -271,6 +272,7 @@ public class CommandHandler implements CommandExecutor {
                 // Fallback: XP bleibt 0
             }
             playerData.setExperience(xpForLevel);
+            plugin.getLeaderboardService().updatePlayer(playerData);
             // Kein sofortiges Speichern mehr!
             // plugin.getPlayerDataManager().savePlayerData(targetPlayer.getUniqueId());
 
@@ -81,6 +81,7 @@ public class LevelSetCommand implements CommandExecutor, TabCompleter {
                 // Fallback: XP bleibt 0
             }
             playerData.setExperience(xpForLevel);
+            plugin.getLeaderboardService().updatePlayer(playerData);
 
             // Send messages
             sender.sendMessage(plugin.getMessageManager().formatMessage("messages.level.set",
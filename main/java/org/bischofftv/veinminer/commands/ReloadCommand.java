@@ -33,6 +33,7 @@ public class ReloadCommand implements CommandExecutor, TabCompleter {
         plugin.getLevelManager().loadConfig();
         plugin.getSkillManager().loadConfig();
         plugin.getAchievementManager().loadConfig();
+        plugin.getLeaderboardService().loadConfig();
 
         // Restart auto-save task
         plugin.restartAutoSaveTask();
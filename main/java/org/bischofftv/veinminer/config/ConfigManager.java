@@ -1,10 +1,13 @@
 package org.bischofftv.veinminer.config;
 
 import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.mining.DropMode;
 import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,6 +27,9 @@ public class ConfigManager {
     private Set<Material> allowedBlocks;
     private int autoSaveInterval;
 
+    // Compiled snapshot for the block-break hot path, swapped as a whole on reload
+    private volatile VeinMinerSettings settings;
+
     public ConfigManager(Veinminer plugin) {
         this.plugin = plugin;
     }
@@ -53,7 +59,7 @@ public class ConfigManager {
         }
 
         // Load allowed blocks
-        allowedBlocks = new HashSet<>();
+        EnumSet<Material> allowedBlocks = EnumSet.noneOf(Material.class);
         List<String> blockList = config.getStringList("allowed-blocks");
 
         // If the list is empty, try the settings.allowed-blocks path
@@ -86,6 +92,10 @@ public class ConfigManager {
 
         plugin.getLogger().info("Loaded " + allowedBlocks.size() + " allowed blocks");
 
+        // Compile and publish the settings snapshot
+        settings = compileSettings(allowedBlocks);
+        this.allowedBlocks = settings.getAllowedBlocks();
+
         // Load GUI settings
         if (!config.isSet("gui.show-about")) {
             config.set("gui.show-about", true);
@@ -93,6 +103,92 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Compile the hot-path settings from the loaded config
+     * @param allowedBlocks The parsed allowed blocks
+     * @return The compiled settings snapshot
+     */
+    private VeinMinerSettings compileSettings(EnumSet<Material> allowedBlocks) {
+        // Hybrid blacklist; entries that are not block materials (e.g. "LEAVES") are skipped
+        EnumSet<Material> hybridBlacklist = EnumSet.noneOf(Material.class);
+        for (String blockName : config.getStringList("settings.hybrid-blacklist")) {
+            Material material = Material.matchMaterial(blockName);
+            if (material != null) {
+                hybridBlacklist.add(material);
+            } else if (plugin.isDebugMode()) {
+                plugin.getLogger().info("[Debug] Ignoring unknown material in hybrid-blacklist: " + blockName);
+            }
+        }
+
+        // Max blocks per level
+        int[] levels = new int[0];
+        int[] values = new int[0];
+        ConfigurationSection blocksSection = config.getConfigurationSection("level-system.max-blocks-per-level");
+        if (blocksSection != null) {
+            Set<String> keys = blocksSection.getKeys(false);
+            levels = new int[keys.size()];
+            values = new int[keys.size()];
+            int index = 0;
+            for (String key : keys) {
+                try {
+                    levels[index] = Integer.parseInt(key);
+                    values[index] = blocksSection.getInt(key);
+                    index++;
+                } catch (NumberFormatException e) {
+                    plugin.getLogger().warning("Invalid level in max-blocks-per-level: " + key);
+                }
+            }
+            levels = Arrays.copyOf(levels, index);
+            values = Arrays.copyOf(values, index);
+        }
+
+        return new VeinMinerSettings(
+                allowedBlocks,
+                config.getBoolean("settings.hybrid-mode", false),
+                hybridBlacklist,
+                useDurabilityMultiplier,
+                durabilityMultiplier,
+                useHungerMultiplier,
+                hungerMultiplier,
+                maxBlocks,
+                config.getBoolean("level-system.enabled", true),
+                VeinMinerSettings.compileLevelTable(levels, values),
+                config.getBoolean("permissions.require-permission", false),
+                config.getBoolean("permissions.require-tool-permission", false),
+                config.getBoolean("settings.async-discovery.enabled", true),
+                Math.max(0, config.getInt("settings.async-discovery.chunk-radius", 1)),
+                Math.max(0, config.getInt("settings.break-budget.max-micros-per-tick", 2000)),
+                Math.max(0, config.getInt("settings.break-budget.max-blocks-per-tick", 128)),
+                Math.max(0, config.getInt("settings.search-limits.max-visited", 4096)),
+                Math.max(0, config.getInt("settings.search-limits.max-radius", 32)),
+                Math.max(0, config.getInt("settings.search-limits.max-bounding-box", 48)),
+                parseDropMode(config.getString("settings.drops.mode", "NATURAL"))
+        );
+    }
+
+    /**
+     * Parse the drop mode from config
+     * @param value The configured value
+     * @return The drop mode, or NATURAL if the value is invalid
+     */
+    private DropMode parseDropMode(String value) {
+        try {
+            return DropMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            plugin.getLogger().warning("Invalid drop mode in config: " + value + ". Using NATURAL.");
+            return DropMode.NATURAL;
+        }
+    }
+
+    /**
+     * Get the compiled settings snapshot. Callers should read it once per operation
+     * so all values come from the same reload.
+     * @return The current settings
+     */
+    public VeinMinerSettings getSettings() {
+        return settings;
+    }
+
     public void reloadConfig() {
         plugin.reloadConfig();
         loadConfig();
@@ -160,4 +256,12 @@ public class ConfigManager {
     public boolean isSaveOnQuit() {
         return config.getBoolean("settings.save-on-quit", true);
     }
+
+    public int getWriteBehindFlushInterval() {
+        return config.getInt("database.write-behind.flush-interval", 30);
+    }
+
+    public int getWriteBehindMaxPending() {
+        return config.getInt("database.write-behind.max-pending", 100);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,221 @@
+package org.bischofftv.veinminer.config;
+
+import org.bischofftv.veinminer.mining.DropMode;
+import org.bischofftv.veinminer.mining.VeinSearchLimits;
+import org.bukkit.Material;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the settings used on the block-break hot path.
+ * Compiled once from config.yml by {@link ConfigManager} and replaced as a whole on reload,
+ * so readers never see a half-updated configuration and never touch the YAML tree.
+ */
+public final class VeinMinerSettings {
+
+    // Used when no max-blocks-per-level entry applies to a level
+    private static final int DEFAULT_LEVEL_MAX_BLOCKS = 8;
+
+    private final Set<Material> allowedBlocks;
+    private final boolean hybridMode;
+    private final Set<Material> hybridBlacklist;
+    private final boolean useDurabilityMultiplier;
+    private final double durabilityMultiplier;
+    private final boolean useHungerMultiplier;
+    private final double hungerMultiplier;
+    private final int maxBlocks;
+    private final boolean levelSystemEnabled;
+    private final int[] maxBlocksByLevel;
+    private final boolean requirePermission;
+    private final boolean requireToolPermission;
+    private final boolean asyncDiscovery;
+    private final int asyncChunkRadius;
+    private final int breakMicrosPerTick;
+    private final int breakBlocksPerTick;
+    private final int searchMaxVisited;
+    private final int searchMaxRadius;
+    private final int searchMaxBoundingBox;
+    private final DropMode dropMode;
+
+    VeinMinerSettings(EnumSet<Material> allowedBlocks, boolean hybridMode, EnumSet<Material> hybridBlacklist,
+                      boolean useDurabilityMultiplier, double durabilityMultiplier,
+                      boolean useHungerMultiplier, double hungerMultiplier,
+                      int maxBlocks, boolean levelSystemEnabled, int[] maxBlocksByLevel,
+                      boolean requirePermission, boolean requireToolPermission,
+                      boolean asyncDiscovery, int asyncChunkRadius,
+                      int breakMicrosPerTick, int breakBlocksPerTick,
+                      int searchMaxVisited, int searchMaxRadius, int searchMaxBoundingBox,
+                      DropMode dropMode) {
+        this.allowedBlocks = Collections.unmodifiableSet(EnumSet.copyOf(allowedBlocks));
+        this.hybridMode = hybridMode;
+        this.hybridBlacklist = Collections.unmodifiableSet(EnumSet.copyOf(hybridBlacklist));
+        this.useDurabilityMultiplier = useDurabilityMultiplier;
+        this.durabilityMultiplier = durabilityMultiplier;
+        this.useHungerMultiplier = useHungerMultiplier;
+        this.hungerMultiplier = hungerMultiplier;
+        this.maxBlocks = maxBlocks;
+        this.levelSystemEnabled = levelSystemEnabled;
+        this.maxBlocksByLevel = maxBlocksByLevel.clone();
+        this.requirePermission = requirePermission;
+        this.requireToolPermission = requireToolPermission;
+        this.asyncDiscovery = asyncDiscovery;
+        this.asyncChunkRadius = asyncChunkRadius;
+        this.breakMicrosPerTick = breakMicrosPerTick;
+        this.breakBlocksPerTick = breakBlocksPerTick;
+        this.searchMaxVisited = searchMaxVisited;
+        this.searchMaxRadius = searchMaxRadius;
+        this.searchMaxBoundingBox = searchMaxBoundingBox;
+        this.dropMode = dropMode;
+    }
+
+    /**
+     * Compile the max-blocks-per-level section into a lookup table where index {@code level}
+     * holds the value of the highest configured level that is less than or equal to it
+     * @param levels The configured levels
+     * @param values The max blocks for each configured level
+     * @return The lookup table
+     */
+    static int[] compileLevelTable(int[] levels, int[] values) {
+        int highestLevel = 0;
+        for (int level : levels) {
+            highestLevel = Math.max(highestLevel, level);
+        }
+
+        int[] configured = new int[highestLevel + 1];
+        boolean[] present = new boolean[highestLevel + 1];
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] >= 1) {
+                configured[levels[i]] = values[i];
+                present[levels[i]] = true;
+            }
+        }
+
+        int[] table = new int[highestLevel + 1];
+        int current = DEFAULT_LEVEL_MAX_BLOCKS;
+        table[0] = current;
+        for (int level = 1; level <= highestLevel; level++) {
+            if (present[level]) {
+                current = configured[level];
+            }
+            table[level] = current;
+        }
+        return table;
+    }
+
+    public Set<Material> getAllowedBlocks() {
+        return allowedBlocks;
+    }
+
+    public boolean isAllowedBlock(Material material) {
+        return allowedBlocks.contains(material);
+    }
+
+    public boolean isHybridMode() {
+        return hybridMode;
+    }
+
+    public boolean isHybridBlacklisted(Material material) {
+        return hybridBlacklist.contains(material);
+    }
+
+    /**
+     * Check if diagonal connections should be followed for a material
+     * @param material The material being mined
+     * @return True if hybrid mode is enabled and the material is not blacklisted
+     */
+    public boolean useDiagonals(Material material) {
+        return hybridMode && !hybridBlacklist.contains(material);
+    }
+
+    public boolean isUseDurabilityMultiplier() {
+        return useDurabilityMultiplier;
+    }
+
+    public double getDurabilityMultiplier() {
+        return durabilityMultiplier;
+    }
+
+    public boolean isUseHungerMultiplier() {
+        return useHungerMultiplier;
+    }
+
+    public double getHungerMultiplier() {
+        return hungerMultiplier;
+    }
+
+    public int getMaxBlocks() {
+        return maxBlocks;
+    }
+
+    public boolean isLevelSystemEnabled() {
+        return levelSystemEnabled;
+    }
+
+    /**
+     * Get the maximum number of blocks that can be mined at once for a level
+     * @param level The level
+     * @return The maximum number of blocks
+     */
+    public int getMaxBlocksForLevel(int level) {
+        // If level system is disabled, use the global max blocks
+        if (!levelSystemEnabled) {
+            return maxBlocks;
+        }
+
+        if (level < 1) {
+            return DEFAULT_LEVEL_MAX_BLOCKS;
+        }
+        return maxBlocksByLevel[Math.min(level, maxBlocksByLevel.length - 1)];
+    }
+
+    public boolean isRequirePermission() {
+        return requirePermission;
+    }
+
+    public boolean isRequireToolPermission() {
+        return requireToolPermission;
+    }
+
+    public boolean isAsyncDiscovery() {
+        return asyncDiscovery;
+    }
+
+    /**
+     * Get the most chunks async discovery captures in each direction from the mined block's chunk
+     * @return The limit in chunks, or 0 to capture everything a search can reach
+     */
+    public int getAsyncChunkRadius() {
+        return asyncChunkRadius;
+    }
+
+    /**
+     * Get the time vein breaking may use per tick
+     * @return The budget in microseconds, or 0 for no time limit
+     */
+    public int getBreakMicrosPerTick() {
+        return breakMicrosPerTick;
+    }
+
+    /**
+     * Get the number of blocks vein breaking may break per tick
+     * @return The block budget, or 0 for no block limit
+     */
+    public int getBreakBlocksPerTick() {
+        return breakBlocksPerTick;
+    }
+
+    /**
+     * Get the search limits for a vein
+     * @param maxBlocks The maximum number of blocks for the player's level
+     * @return The search limits
+     */
+    public VeinSearchLimits getSearchLimits(int maxBlocks) {
+        return new VeinSearchLimits(maxBlocks, searchMaxVisited, searchMaxRadius, searchMaxBoundingBox);
+    }
+
+    public DropMode getDropMode() {
+        return dropMode;
+    }
+}
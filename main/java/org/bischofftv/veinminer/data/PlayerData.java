@@ -1,11 +1,22 @@
 package org.bischofftv.veinminer.data;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 public class PlayerData {
 
+    // Dirty flags, one per group of columns that is written together
+    public static final int DIRTY_SETTINGS = 1;
+    public static final int DIRTY_PROGRESS = 1 << 1;
+    public static final int DIRTY_SKILLS = 1 << 2;
+    // Experience and blocks mined were set to a value instead of incremented
+    public static final int DIRTY_COUNTERS = 1 << 3;
+    public static final int DIRTY_ALL = DIRTY_SETTINGS | DIRTY_PROGRESS | DIRTY_SKILLS | DIRTY_COUNTERS;
+
     private UUID uuid;
     private String playerName;
     private boolean veinMinerEnabled;
@@ -20,6 +31,16 @@ public class PlayerData {
     private int luckLevel;
     private int energyLevel;
 
+    // Columns changed since the last save
+    private int dirtyMask;
+
+    // Increments since the last save, added to the stored counters instead of overwriting them
+    private int experienceDelta;
+    private long blocksMinedDelta;
+
+    // Row version this data is based on, checked when level, skills or settings are written
+    private long version;
+
     public PlayerData(UUID uuid, String playerName) {
         this.uuid = uuid;
         this.playerName = playerName;
@@ -56,6 +77,7 @@ public class PlayerData {
 
     public void setVeinMinerEnabled(boolean veinMinerEnabled) {
         this.veinMinerEnabled = veinMinerEnabled;
+        dirtyMask |= DIRTY_SETTINGS;
     }
 
     public int getLevel() {
@@ -64,6 +86,7 @@ public class PlayerData {
 
     public void setLevel(int level) {
         this.level = level;
+        dirtyMask |= DIRTY_PROGRESS;
     }
 
     public int getExperience() {
@@ -72,10 +95,12 @@ public class PlayerData {
 
     public void setExperience(int experience) {
         this.experience = experience;
+        dirtyMask |= DIRTY_COUNTERS;
     }
 
     public void addExperience(int amount) {
         this.experience += amount;
+        this.experienceDelta += amount;
     }
 
     public long getBlocksMined() {
@@ -84,10 +109,12 @@ public class PlayerData {
 
     public void setBlocksMined(long blocksMined) {
         this.blocksMined = blocksMined;
+        dirtyMask |= DIRTY_COUNTERS;
     }
 
     public void addBlocksMined(int amount) {
         this.blocksMined += amount;
+        this.blocksMinedDelta += amount;
     }
 
     public Map<String, Boolean> getEnabledTools() {
@@ -96,6 +123,7 @@ public class PlayerData {
 
     public void setEnabledTools(Map<String, Boolean> enabledTools) {
         this.enabledTools = enabledTools;
+        dirtyMask |= DIRTY_SETTINGS;
     }
 
     public boolean isToolEnabled(String toolName) {
@@ -104,6 +132,7 @@ public class PlayerData {
 
     public void setToolEnabled(String toolName, boolean enabled) {
         this.enabledTools.put(toolName, enabled);
+        dirtyMask |= DIRTY_SETTINGS;
     }
 
     public int getSkillPoints() {
@@ -112,15 +141,18 @@ public class PlayerData {
 
     public void setSkillPoints(int skillPoints) {
         this.skillPoints = skillPoints;
+        dirtyMask |= DIRTY_SKILLS;
     }
 
     public void addSkillPoints(int points) {
         this.skillPoints += points;
+        dirtyMask |= DIRTY_SKILLS;
     }
 
     public boolean useSkillPoints(int points) {
         if (skillPoints >= points) {
             skillPoints -= points;
+            dirtyMask |= DIRTY_SKILLS;
             return true;
         }
         return false;
@@ -133,6 +165,7 @@ public class PlayerData {
 
     public void setEfficiencyLevel(int level) {
         this.efficiencyLevel = level;
+        dirtyMask |= DIRTY_SKILLS;
     }
 
     public int getLuckLevel() {
@@ -141,6 +174,7 @@ public class PlayerData {
 
     public void setLuckLevel(int level) {
         this.luckLevel = level;
+        dirtyMask |= DIRTY_SKILLS;
     }
 
     public int getEnergyLevel() {
@@ -149,5 +183,187 @@ public class PlayerData {
 
     public void setEnergyLevel(int level) {
         this.energyLevel = level;
+        dirtyMask |= DIRTY_SKILLS;
+    }
+
+    /**
+     * Create a detached copy that can be saved off the main thread while this one keeps changing
+     * @return The copy
+     */
+    public PlayerData copy() {
+        PlayerData copy = new PlayerData(uuid, playerName);
+        copy.veinMinerEnabled = veinMinerEnabled;
+        copy.level = level;
+        copy.experience = experience;
+        copy.blocksMined = blocksMined;
+        copy.enabledTools = new HashMap<>(enabledTools);
+        copy.skillPoints = skillPoints;
+        copy.efficiencyLevel = efficiencyLevel;
+        copy.luckLevel = luckLevel;
+        copy.energyLevel = energyLevel;
+        copy.dirtyMask = dirtyMask;
+        copy.experienceDelta = experienceDelta;
+        copy.blocksMinedDelta = blocksMinedDelta;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * Check if anything changed since the last save
+     * @return True if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return dirtyMask != 0 || hasPendingIncrements();
+    }
+
+    /**
+     * Check if experience or blocks mined were incremented since the last save
+     * @return True if there are increments to write
+     */
+    public boolean hasPendingIncrements() {
+        return experienceDelta != 0 || blocksMinedDelta != 0;
+    }
+
+    public int getExperienceDelta() {
+        return experienceDelta;
+    }
+
+    public long getBlocksMinedDelta() {
+        return blocksMinedDelta;
+    }
+
+    /**
+     * Add increments back that weren't written, e.g. to retry a failed save.
+     * The counters themselves already contain them.
+     * @param experience The experience increment
+     * @param blocksMined The blocks mined increment
+     */
+    public void addPendingIncrements(int experience, long blocksMined) {
+        this.experienceDelta += experience;
+        this.blocksMinedDelta += blocksMined;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Get which column groups changed since the last save
+     * @return A combination of the DIRTY_ flags
+     */
+    public int getDirtyMask() {
+        return dirtyMask;
+    }
+
+    /**
+     * Mark column groups as changed, e.g. to retry a failed save
+     * @param mask A combination of the DIRTY_ flags
+     */
+    public void markDirty(int mask) {
+        dirtyMask |= mask;
+    }
+
+    /**
+     * Forget unsaved changes after they were written or loaded from the database
+     */
+    public void clearDirty() {
+        dirtyMask = 0;
+        experienceDelta = 0;
+        blocksMinedDelta = 0;
+    }
+
+    /**
+     * Bring this data up to date with a row that may have been written by another server.
+     * Column groups with unsaved changes keep their local values and stay dirty so they are
+     * written again on top of the stored version, the others take the stored values.
+     * Counters become the stored value plus the increments not written yet, and the higher level wins.
+     * @param stored The row as read from the database
+     * @param unsavedMask Column groups whose last write was rejected, besides the ones dirty now
+     */
+    public void mergeStored(PlayerData stored, int unsavedMask) {
+        int keep = dirtyMask | unsavedMask;
+        version = stored.version;
+
+        if ((keep & DIRTY_SETTINGS) == 0) {
+            veinMinerEnabled = stored.veinMinerEnabled;
+            enabledTools = new HashMap<>(stored.enabledTools);
+        }
+        if ((keep & DIRTY_COUNTERS) == 0) {
+            experience = stored.experience + experienceDelta;
+            blocksMined = stored.blocksMined + blocksMinedDelta;
+        }
+        if (level > stored.level) {
+            keep |= DIRTY_PROGRESS;
+        } else {
+            level = stored.level;
+            keep &= ~DIRTY_PROGRESS;
+        }
+        if ((keep & DIRTY_SKILLS) == 0) {
+            skillPoints = stored.skillPoints;
+            efficiencyLevel = stored.efficiencyLevel;
+            luckLevel = stored.luckLevel;
+            energyLevel = stored.energyLevel;
+        }
+
+        dirtyMask = keep;
+    }
+
+    /**
+     * Write this data, including dirty flags, increments and version, e.g. to the mutation journal
+     * @param out The output
+     * @throws IOException If writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeUTF(playerName);
+        out.writeInt(dirtyMask);
+        out.writeBoolean(veinMinerEnabled);
+        out.writeBoolean(isToolEnabled("pickaxe"));
+        out.writeBoolean(isToolEnabled("axe"));
+        out.writeBoolean(isToolEnabled("shovel"));
+        out.writeBoolean(isToolEnabled("hoe"));
+        out.writeInt(level);
+        out.writeInt(experience);
+        out.writeLong(blocksMined);
+        out.writeInt(skillPoints);
+        out.writeInt(efficiencyLevel);
+        out.writeInt(luckLevel);
+        out.writeInt(energyLevel);
+        out.writeInt(experienceDelta);
+        out.writeLong(blocksMinedDelta);
+        out.writeLong(version);
+    }
+
+    /**
+     * Read data written by writeTo
+     * @param in The input
+     * @return The player data
+     * @throws IOException If reading fails
+     */
+    public static PlayerData readFrom(DataInput in) throws IOException {
+        UUID uuid = new UUID(in.readLong(), in.readLong());
+        PlayerData playerData = new PlayerData(uuid, in.readUTF());
+        playerData.dirtyMask = in.readInt();
+        playerData.veinMinerEnabled = in.readBoolean();
+        playerData.enabledTools.put("pickaxe", in.readBoolean());
+        playerData.enabledTools.put("axe", in.readBoolean());
+        playerData.enabledTools.put("shovel", in.readBoolean());
+        playerData.enabledTools.put("hoe", in.readBoolean());
+        playerData.level = in.readInt();
+        playerData.experience = in.readInt();
+        playerData.blocksMined = in.readLong();
+        playerData.skillPoints = in.readInt();
+        playerData.efficiencyLevel = in.readInt();
+        playerData.luckLevel = in.readInt();
+        playerData.energyLevel = in.readInt();
+        playerData.experienceDelta = in.readInt();
+        playerData.blocksMinedDelta = in.readLong();
+        playerData.version = in.readLong();
+        return playerData;
     }
 }
\ No newline at end of file
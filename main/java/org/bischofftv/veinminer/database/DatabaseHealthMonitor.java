@@ -0,0 +1,158 @@
+package org.bischofftv.veinminer.database;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checks the database connection in the background and publishes the result, so loads and saves
+ * don't have to validate a connection first. Works as a circuit breaker: once a check or a caller
+ * reports a failure, requests fail fast until a background check succeeds again. Checks while the
+ * database is down are spaced out with exponential backoff.
+ */
+public class DatabaseHealthMonitor {
+
+    // How often the connection is checked while it is healthy
+    private static final long HEALTHY_INTERVAL_MILLIS = 10_000;
+    // First and longest wait between checks while the database is down
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final Veinminer plugin;
+    private final BooleanSupplier probe;
+    private final boolean reduceLogging;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private volatile boolean healthy = true;
+    private volatile long lastCheckMillis;
+    private volatile long nextCheckMillis;
+    private volatile long backoffMillis = MIN_BACKOFF_MILLIS;
+    private volatile int consecutiveFailures;
+    private BukkitTask task;
+
+    /**
+     * @param plugin The plugin
+     * @param probe Checks a connection, blocking, returns true if the database answered
+     * @param reduceLogging True to only log when the state changes
+     */
+    public DatabaseHealthMonitor(Veinminer plugin, BooleanSupplier probe, boolean reduceLogging) {
+        this.plugin = plugin;
+        this.probe = probe;
+        this.reduceLogging = reduceLogging;
+    }
+
+    /**
+     * Check the connection once and start checking in the background
+     */
+    public void start() {
+        check();
+        task = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::tick, 20L, 20L);
+    }
+
+    /**
+     * Stop the background checks
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * Check if a database request should be attempted. Doesn't block.
+     * @return False while the circuit is open and requests should fail fast
+     */
+    public boolean allowRequest() {
+        return healthy;
+    }
+
+    /**
+     * Report that a request couldn't get a working connection or lost it, which opens the circuit
+     */
+    public void recordFailure() {
+        if (healthy) {
+            healthy = false;
+            backoffMillis = MIN_BACKOFF_MILLIS;
+            nextCheckMillis = System.currentTimeMillis() + backoffMillis;
+            plugin.getLogger().warning("Database connection failed, pausing database access until it recovers.");
+        }
+    }
+
+    private void tick() {
+        if (System.currentTimeMillis() >= nextCheckMillis) {
+            check();
+        }
+    }
+
+    /**
+     * Run the probe and update the published state. Only one check runs at a time.
+     */
+    private void check() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            boolean ok;
+            try {
+                ok = probe.getAsBoolean();
+            } catch (RuntimeException e) {
+                ok = false;
+            }
+
+            long now = System.currentTimeMillis();
+            lastCheckMillis = now;
+            if (ok) {
+                if (!healthy) {
+                    plugin.getLogger().info("Database connection restored after " + consecutiveFailures + " failed checks.");
+                }
+                healthy = true;
+                consecutiveFailures = 0;
+                backoffMillis = MIN_BACKOFF_MILLIS;
+                nextCheckMillis = now + HEALTHY_INTERVAL_MILLIS;
+            } else {
+                if (healthy) {
+                    plugin.getLogger().warning("Database connection lost, pausing database access until it recovers.");
+                    backoffMillis = MIN_BACKOFF_MILLIS;
+                } else {
+                    backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+                    if (!reduceLogging) {
+                        plugin.getLogger().warning("Database still unavailable, next check in " + (backoffMillis / 1000) + "s");
+                    }
+                }
+                healthy = false;
+                consecutiveFailures++;
+                nextCheckMillis = now + backoffMillis;
+            }
+        } finally {
+            probing.set(false);
+        }
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Get when the connection was last checked
+     * @return The time in milliseconds, or 0 if it hasn't been checked yet
+     */
+    public long getLastCheckMillis() {
+        return lastCheckMillis;
+    }
+
+    /**
+     * Get how long until the next background check
+     * @return The time in milliseconds
+     */
+    public long getMillisUntilNextCheck() {
+        return Math.max(0, nextCheckMillis - System.currentTimeMillis());
+    }
+}
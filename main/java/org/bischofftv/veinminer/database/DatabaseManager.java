@@ -3,18 +3,23 @@ package org.bischofftv.veinminer.database;
 import org.bischofftv.veinminer.Veinminer;
 import org.bischofftv.veinminer.data.PlayerData;
 
+import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.UUID;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.bukkit.Bukkit;
 
 public class DatabaseManager {
@@ -30,8 +35,20 @@ public class DatabaseManager {
     private String tablePrefix;
     private boolean fallbackMode = false;
     private Connection fallbackConnection = null;
+    private SQLiteBackend sqliteBackend;
     private long lastSyncTime = 0;
     private boolean reduceLogging;
+    private PlayerDataStatements playerDataStatements;
+    private DatabaseHealthMonitor healthMonitor;
+
+    // Aborts connections whose queries exceed the network timeout, shared by all borrowed connections
+    private ExecutorService networkTimeoutExecutor;
+    private int networkTimeout;
+
+    // How long borrowing a connection from the pool takes
+    private final AtomicLong connectionsAcquired = new AtomicLong();
+    private final AtomicLong totalAcquireNanos = new AtomicLong();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
 
     public DatabaseManager(Veinminer plugin) {
         this.plugin = plugin;
@@ -69,6 +86,16 @@ public class DatabaseManager {
             // Use SQLite
             setupSQLite();
         }
+
+        // The SQL syntax depends on which database we ended up with
+        playerDataStatements = new PlayerDataStatements(tablePrefix, isFallbackMode());
+
+        // Check the connection in the background instead of before every query
+        if (healthMonitor != null) {
+            healthMonitor.stop();
+        }
+        healthMonitor = new DatabaseHealthMonitor(plugin, this::probeConnection, reduceLogging);
+        healthMonitor.start();
     }
 
     /**
@@ -80,12 +107,25 @@ public class DatabaseManager {
         config.setUsername(username);
         config.setPassword(password);
         
-        // Optimierte Pool-Einstellungen für mehrere Server
-        config.setMaximumPoolSize(20); // Erhöht für mehrere Server
-        config.setMinimumIdle(5);
-        config.setIdleTimeout(300000); // 5 Minuten
-        config.setConnectionTimeout(10000); // 10 Sekunden
-        config.setMaxLifetime(1800000); // 30 Minuten
+        // Pool settings from the database.pool section
+        config.setPoolName("VeinMiner-Pool");
+        config.setMaximumPoolSize(plugin.getConfig().getInt("database.pool.max-pool-size", 10));
+        config.setMinimumIdle(plugin.getConfig().getInt("database.pool.min-idle", 2));
+        config.setIdleTimeout(plugin.getConfig().getLong("database.pool.idle-timeout", 300000));
+        config.setMaxLifetime(plugin.getConfig().getLong("database.pool.max-lifetime", 600000));
+        // How long a caller waits for a free connection from the pool
+        config.setConnectionTimeout(plugin.getConfig().getLong("database.pool.wait-timeout", 10000));
+        // How long the driver waits while opening a connection to the server
+        config.addDataSourceProperty("connectTimeout", String.valueOf(plugin.getConfig().getInt("database.pool.connection-timeout", 30000)));
+        networkTimeout = plugin.getConfig().getInt("database.pool.network-timeout", 5000);
+
+        if (networkTimeoutExecutor == null || networkTimeoutExecutor.isShutdown()) {
+            networkTimeoutExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "VeinMiner-NetworkTimeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         
         // Optimierte Einstellungen für hohe Last
         config.addDataSourceProperty("cachePrepStmts", "true");
@@ -120,12 +160,13 @@ public class DatabaseManager {
                 plugin.getDataFolder().mkdir();
             }
 
-            // Connect to SQLite database
+            // Connect to SQLite database, writes use this connection and reads get their own
             Class.forName("org.sqlite.JDBC");
-            String url = "jdbc:sqlite:" + plugin.getDataFolder() + "/veinminer.db";
-            fallbackConnection = DriverManager.getConnection(url);
+            sqliteBackend = new SQLiteBackend(plugin, new File(plugin.getDataFolder(), "veinminer.db"));
+            sqliteBackend.open();
+            fallbackConnection = sqliteBackend.getWriteConnection();
 
-            plugin.getLogger().info("Connected to SQLite database.");
+            plugin.getLogger().info("Connected to SQLite database (WAL mode).");
         } catch (ClassNotFoundException | SQLException e) {
             plugin.getLogger().severe("Failed to connect to SQLite database: " + e.getMessage());
             fallbackMode = true;
@@ -162,6 +203,8 @@ public class DatabaseManager {
                     "axe_enabled BOOLEAN DEFAULT 0, " +
                     "shovel_enabled BOOLEAN DEFAULT 0, " +
                     "hoe_enabled BOOLEAN DEFAULT 0, " +
+                    "completed_achievements INT DEFAULT 0, " +
+                    "version BIGINT DEFAULT 0, " +
                     "last_updated TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                     ")";
 
@@ -259,6 +302,16 @@ public class DatabaseManager {
             checkAndAddColumn(connection, tablePrefix + "player_data", "luck_level", "INT DEFAULT 0");
             checkAndAddColumn(connection, tablePrefix + "player_data", "energy_level", "INT DEFAULT 0");
             checkAndAddColumn(connection, tablePrefix + "player_data", "last_updated", isFallbackMode() ? "TEXT DEFAULT CURRENT_TIMESTAMP" : "TIMESTAMP DEFAULT CURRENT_TIMESTAMP");
+            checkAndAddColumn(connection, tablePrefix + "player_data", "version", "BIGINT DEFAULT 0");
+            if (checkAndAddColumn(connection, tablePrefix + "player_data", "completed_achievements", "INT DEFAULT 0")) {
+                // Existing players start at 0, count what they already completed
+                int players = recountCompletedAchievements(connection);
+                plugin.getLogger().info("Counted completed achievements for " + players + " players");
+            }
+
+            // Covers the achievements leaderboard, so it is read from the index without touching the rows
+            checkAndAddIndex(connection, tablePrefix + "player_data", tablePrefix + "player_data_achievements",
+                    "completed_achievements, uuid, player_name");
 
             plugin.getLogger().info("Database schema updated if needed.");
         } catch (SQLException e) {
@@ -275,9 +328,10 @@ public class DatabaseManager {
      * @param table The table name
      * @param column The column name
      * @param definition The column definition
+     * @return True if the column was added
      * @throws SQLException If an SQL error occurs
      */
-    private void checkAndAddColumn(Connection connection, String table, String column, String definition) throws SQLException {
+    private boolean checkAndAddColumn(Connection connection, String table, String column, String definition) throws SQLException {
         // Check if column exists
         boolean columnExists = false;
         ResultSet resultSet = null;
@@ -315,6 +369,54 @@ public class DatabaseManager {
                     alterStatement.close();
                 }
             }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recompute the completed_achievements counter of every player from the achievements table
+     * @param connection The database connection
+     * @return The number of players whose counter was recomputed
+     * @throws SQLException If an SQL error occurs
+     */
+    public int recountCompletedAchievements(Connection connection) throws SQLException {
+        String playerDataTable = tablePrefix + "player_data";
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + playerDataTable + " SET completed_achievements = " +
+                        "(SELECT COUNT(*) FROM " + tablePrefix + "achievements a " +
+                        "WHERE a.uuid = " + playerDataTable + ".uuid AND a.completed = 1)")) {
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Check if an index exists on a table and create it if it doesn't
+     * @param connection The database connection
+     * @param table The table name
+     * @param index The index name
+     * @param columns The indexed columns, comma separated
+     * @throws SQLException If an SQL error occurs
+     */
+    private void checkAndAddIndex(Connection connection, String table, String index, String columns) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (isFallbackMode()) {
+                // SQLite
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + index + " ON " + table + " (" + columns + ")");
+                return;
+            }
+
+            // MySQL has no CREATE INDEX IF NOT EXISTS
+            try (PreparedStatement check = connection.prepareStatement("SHOW INDEX FROM " + table + " WHERE Key_name = ?")) {
+                check.setString(1, index);
+                try (ResultSet resultSet = check.executeQuery()) {
+                    if (resultSet.next()) {
+                        return;
+                    }
+                }
+            }
+            statement.executeUpdate("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+            plugin.getLogger().info("Added index " + index + " to table " + table);
         }
     }
 
@@ -328,30 +430,102 @@ public class DatabaseManager {
         }
 
         try {
-            // Setze einen kürzeren Timeout für das Abrufen einer Verbindung
+            long startTime = System.nanoTime();
             Connection connection = dataSource.getConnection();
+            recordAcquire(System.nanoTime() - startTime);
 
             // Setze einen Timeout für Datenbankoperationen
-            connection.setNetworkTimeout(java.util.concurrent.Executors.newSingleThreadExecutor(),
-                    5000); // 5 Sekunden Timeout
+            if (networkTimeout > 0) {
+                connection.setNetworkTimeout(networkTimeoutExecutor, networkTimeout);
+            }
 
             return connection;
         } catch (SQLException e) {
             if (!reduceLogging) {
                 plugin.getLogger().severe("Failed to get database connection: " + e.getMessage());
             }
+            if (healthMonitor != null) {
+                healthMonitor.recordFailure();
+            }
             return null;
         }
     }
 
     /**
-     * Check if the database connection is valid without opening a new connection
+     * Get a connection for queries that only read. On SQLite every thread gets its own
+     * read-only connection, so reads don't share the writer's connection or transaction.
+     * Release it with closeResources like any other connection.
+     * @return A database connection, or null if an error occurs
+     */
+    public Connection getReadConnection() {
+        if (!isFallbackMode()) {
+            return getConnection();
+        }
+
+        try {
+            return sqliteBackend != null ? sqliteBackend.getReadConnection() : null;
+        } catch (SQLException e) {
+            if (!reduceLogging) {
+                plugin.getLogger().severe("Failed to open SQLite read connection: " + e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Prepare a statement, reusing a cached one on SQLite where the driver doesn't cache statements.
+     * Return it with releaseStatement instead of closing it.
+     * @param connection The connection
+     * @param sql The SQL
+     * @return The statement
+     * @throws SQLException If an SQL error occurs
+     */
+    public PreparedStatement prepareCached(Connection connection, String sql) throws SQLException {
+        if (isFallbackMode() && sqliteBackend != null) {
+            return sqliteBackend.prepare(connection, sql);
+        }
+        // The MySQL driver caches prepared statements itself (cachePrepStmts)
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Release a statement from prepareCached
+     * @param statement The statement, may be null
+     */
+    public void releaseStatement(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        if (isFallbackMode() && sqliteBackend != null) {
+            sqliteBackend.release(statement);
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to close Statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check if the database can be used. Doesn't open a connection, the health monitor
+     * keeps the state up to date in the background, so this returns at once while the database is down.
      * @return True if the connection is valid, false otherwise
      */
     public boolean isConnectionValid() {
+        return healthMonitor != null ? healthMonitor.allowRequest() : probeConnection();
+    }
+
+    /**
+     * Borrow a connection and check that the database answers. Blocks, used by the health monitor.
+     * @return True if the connection is valid, false otherwise
+     */
+    private boolean probeConnection() {
         if (isFallbackMode()) {
             try {
-                return fallbackConnection != null && !fallbackConnection.isClosed() && fallbackConnection.isValid(2);
+                // The write connection belongs to the persistence thread, probe this thread's read connection
+                Connection readConnection = getReadConnection();
+                return readConnection != null && readConnection.isValid(2);
             } catch (SQLException e) {
                 if (!reduceLogging) {
                     plugin.getLogger().warning("Failed to check fallback connection validity: " + e.getMessage());
@@ -396,51 +570,110 @@ public class DatabaseManager {
      * @return True if the connection is valid, false otherwise
      */
     public boolean checkConnection() {
-        // Zuerst prüfen, ob wir den Status ohne neue Verbindung prüfen können
-        if (isConnectionValid()) {
-            return true;
-        }
-
-        Connection connection = null;
-        try {
-            connection = getConnection();
-            return connection != null && !connection.isClosed();
-        } catch (SQLException e) {
-            if (!reduceLogging) {
-                plugin.getLogger().severe("Database connection check failed: " + e.getMessage());
-            }
-            return false;
-        } finally {
-            // Wichtig: Verbindung immer schließen
-            if (connection != null && !isFallbackMode()) {
-                try {
-                    connection.close();
-                } catch (SQLException e) {
-                    if (!reduceLogging) {
-                        plugin.getLogger().warning("Failed to close connection in checkConnection: " + e.getMessage());
-                    }
-                }
-            }
-        }
+        return isConnectionValid();
     }
 
     /**
      * Close the database connection
      */
     public void close() {
+        if (healthMonitor != null) {
+            healthMonitor.stop();
+        }
+
         if (isFallbackMode()) {
-            try {
-                if (fallbackConnection != null && !fallbackConnection.isClosed()) {
-                    fallbackConnection.close();
-                }
-            } catch (SQLException e) {
-                plugin.getLogger().warning("Failed to close SQLite connection: " + e.getMessage());
+            if (sqliteBackend != null) {
+                sqliteBackend.close();
+                sqliteBackend = null;
+                fallbackConnection = null;
             }
         } else {
             if (dataSource != null && !dataSource.isClosed()) {
                 dataSource.close();
             }
         }
+
+        if (networkTimeoutExecutor != null) {
+            networkTimeoutExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Record how long borrowing a connection took
+     * @param nanos The time in nanoseconds
+     */
+    private void recordAcquire(long nanos) {
+        connectionsAcquired.incrementAndGet();
+        totalAcquireNanos.addAndGet(nanos);
+        maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Get the MySQL connection pool's statistics
+     * @return The pool statistics, or null when using SQLite
+     */
+    private HikariPoolMXBean getPoolStats() {
+        if (isFallbackMode() || dataSource == null || dataSource.isClosed()) {
+            return null;
+        }
+        return dataSource.getHikariPoolMXBean();
+    }
+
+    /**
+     * Check if a connection pool is in use
+     * @return True when connected to MySQL through the pool
+     */
+    public boolean hasConnectionPool() {
+        return getPoolStats() != null;
+    }
+
+    public int getActiveConnections() {
+        HikariPoolMXBean pool = getPoolStats();
+        return pool != null ? pool.getActiveConnections() : 0;
+    }
+
+    public int getIdleConnections() {
+        HikariPoolMXBean pool = getPoolStats();
+        return pool != null ? pool.getIdleConnections() : 0;
+    }
+
+    public int getTotalConnections() {
+        HikariPoolMXBean pool = getPoolStats();
+        return pool != null ? pool.getTotalConnections() : 0;
+    }
+
+    /**
+     * Get the number of threads waiting for a free connection
+     * @return The number of threads
+     */
+    public int getThreadsAwaitingConnection() {
+        HikariPoolMXBean pool = getPoolStats();
+        return pool != null ? pool.getThreadsAwaitingConnection() : 0;
+    }
+
+    public int getMaxPoolSize() {
+        return dataSource != null ? dataSource.getMaximumPoolSize() : 0;
+    }
+
+    public long getConnectionsAcquired() {
+        return connectionsAcquired.get();
+    }
+
+    /**
+     * Get the average time it took to borrow a connection from the pool
+     * @return The time in milliseconds
+     */
+    public double getAverageAcquireMillis() {
+        long count = connectionsAcquired.get();
+        return count == 0 ? 0 : totalAcquireNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * Get the longest time it took to borrow a connection from the pool
+     * @return The time in milliseconds
+     */
+    public double getMaxAcquireMillis() {
+        return maxAcquireNanos.get() / 1_000_000.0;
     }
 
     /**
@@ -459,6 +692,22 @@ public class DatabaseManager {
         return tablePrefix;
     }
 
+    /**
+     * Get the player_data statements for the active database
+     * @return The statements
+     */
+    public PlayerDataStatements getPlayerDataStatements() {
+        return playerDataStatements;
+    }
+
+    /**
+     * Get the background connection health monitor
+     * @return The health monitor
+     */
+    public DatabaseHealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
     /**
      * Synchronize data with other servers
      * This is called periodically to check for updates from other servers
@@ -548,7 +797,7 @@ public class DatabaseManager {
         ResultSet resultSet = null;
 
         try {
-            connection = getConnection();
+            connection = getReadConnection();
             if (connection == null) {
                 return "Failed to get database connection";
             }
@@ -646,6 +895,11 @@ public class DatabaseManager {
      * @throws SQLException If the operation fails
      */
     public <T> T executeInTransaction(DatabaseOperation<T> operation) throws SQLException {
+        // Fail fast while the database is down, the caller retries later
+        if (!isConnectionValid()) {
+            throw new SQLException("Database is unavailable");
+        }
+
         Connection connection = null;
         try {
             connection = getConnection();
@@ -668,11 +922,17 @@ public class DatabaseManager {
                 connection.rollback();
                 throw e;
             }
+        } catch (SQLException e) {
+            recordConnectionFailure(e);
+            throw e;
         } finally {
             if (connection != null) {
                 try {
                     connection.setAutoCommit(true);
-                    connection.close();
+                    // The SQLite connection is shared and stays open
+                    if (!isFallbackMode()) {
+                        connection.close();
+                    }
                 } catch (SQLException e) {
                     plugin.getLogger().warning("Error closing connection: " + e.getMessage());
                 }
@@ -681,117 +941,67 @@ public class DatabaseManager {
     }
 
     /**
-     * Functional interface for database operations
+     * Execute a read-only database operation on a read connection, without a transaction
+     * @param operation The database operation to execute
      * @param <T> The return type of the operation
+     * @return The result of the operation
+     * @throws SQLException If an SQL error occurs
      */
-    @FunctionalInterface
-    public interface DatabaseOperation<T> {
-        T execute(Connection connection) throws SQLException;
+    public <T> T executeRead(DatabaseOperation<T> operation) throws SQLException {
+        // Fail fast while the database is down
+        if (!isConnectionValid()) {
+            throw new SQLException("Database is unavailable");
+        }
+
+        Connection connection = getReadConnection();
+        if (connection == null) {
+            throw new SQLException("Failed to get database connection");
+        }
+        try {
+            return operation.execute(connection);
+        } catch (SQLException e) {
+            recordConnectionFailure(e);
+            throw e;
+        } finally {
+            closeResourcesInternal(null, null, connection);
+        }
     }
 
     /**
-     * Save player data to the database
-     * @param uuid The player UUID
-     * @param playerData The player data to save
+     * Open the circuit if a query failed because the connection broke or timed out, so later
+     * requests fail fast instead of each waiting for the network timeout
+     * @param e The exception the query failed with
      */
-    public void savePlayerData(UUID uuid, PlayerData playerData) {
-        if (playerData == null) {
-            plugin.getLogger().warning("Attempted to save null player data for UUID: " + uuid);
+    private void recordConnectionFailure(SQLException e) {
+        if (healthMonitor == null) {
             return;
         }
-        
-        Connection connection = null;
-        PreparedStatement statement = null;
-        
-        try {
-            connection = getConnection();
-            if (connection == null) {
-                plugin.getLogger().warning("Failed to save player data: No database connection");
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTimeoutException) {
+                healthMonitor.recordFailure();
                 return;
             }
-            
-            // Check if player exists
-            String checkSql = "SELECT uuid FROM " + tablePrefix + "player_data WHERE uuid = ?";
-            PreparedStatement checkStatement = connection.prepareStatement(checkSql);
-            checkStatement.setString(1, uuid.toString());
-            ResultSet resultSet = checkStatement.executeQuery();
-            
-            String sql;
-            if (resultSet.next()) {
-                // Update existing player
-                sql = "UPDATE " + tablePrefix + "player_data SET " +
-                        "player_name = ?, " +
-                        "veinminer_enabled = ?, " +
-                        "level = ?, " +
-                        "experience = ?, " +
-                        "blocks_mined = ?, " +
-                        "skill_points = ?, " +
-                        "efficiency_level = ?, " +
-                        "luck_level = ?, " +
-                        "energy_level = ?, " +
-                        "pickaxe_enabled = ?, " +
-                        "axe_enabled = ?, " +
-                        "shovel_enabled = ?, " +
-                        "hoe_enabled = ?, " +
-                        "last_updated = " + (isFallbackMode() ? "datetime('now')" : "NOW()") + " " +
-                        "WHERE uuid = ?";
-            } else {
-                // Insert new player
-                sql = "INSERT INTO " + tablePrefix + "player_data " +
-                        "(uuid, player_name, veinminer_enabled, level, experience, blocks_mined, " +
-                        "skill_points, efficiency_level, luck_level, energy_level, " +
-                        "pickaxe_enabled, axe_enabled, shovel_enabled, hoe_enabled) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            }
-            
-            statement = connection.prepareStatement(sql);
-            
-            if (resultSet.next()) {
-                // Update existing player
-                statement.setString(1, playerData.getPlayerName());
-                statement.setBoolean(2, playerData.isVeinMinerEnabled());
-                statement.setInt(3, playerData.getLevel());
-                statement.setInt(4, playerData.getExperience());
-                statement.setLong(5, playerData.getBlocksMined());
-                statement.setInt(6, playerData.getSkillPoints());
-                statement.setInt(7, playerData.getEfficiencyLevel());
-                statement.setInt(8, playerData.getLuckLevel());
-                statement.setInt(9, playerData.getEnergyLevel());
-                statement.setBoolean(10, playerData.isToolEnabled("PICKAXE"));
-                statement.setBoolean(11, playerData.isToolEnabled("AXE"));
-                statement.setBoolean(12, playerData.isToolEnabled("SHOVEL"));
-                statement.setBoolean(13, playerData.isToolEnabled("HOE"));
-                statement.setString(14, uuid.toString());
-            } else {
-                // Insert new player
-                statement.setString(1, uuid.toString());
-                statement.setString(2, playerData.getPlayerName());
-                statement.setBoolean(3, playerData.isVeinMinerEnabled());
-                statement.setInt(4, playerData.getLevel());
-                statement.setInt(5, playerData.getExperience());
-                statement.setLong(6, playerData.getBlocksMined());
-                statement.setInt(7, playerData.getSkillPoints());
-                statement.setInt(8, playerData.getEfficiencyLevel());
-                statement.setInt(9, playerData.getLuckLevel());
-                statement.setInt(10, playerData.getEnergyLevel());
-                statement.setBoolean(11, playerData.isToolEnabled("PICKAXE"));
-                statement.setBoolean(12, playerData.isToolEnabled("AXE"));
-                statement.setBoolean(13, playerData.isToolEnabled("SHOVEL"));
-                statement.setBoolean(14, playerData.isToolEnabled("HOE"));
-            }
-            
-            statement.executeUpdate();
-            
-            if (plugin.isDebugMode()) {
-                plugin.getLogger().info("Saved player data for " + playerData.getPlayerName());
+            // SQLState class 08 is a connection exception, e.g. 08S01 when the server stops answering
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    healthMonitor.recordFailure();
+                    return;
+                }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Failed to save player data: " + e.getMessage());
-        } finally {
-            closeResourcesInternal(null, statement, connection);
         }
     }
-    
+
+    /**
+     * Functional interface for database operations
+     * @param <T> The return type of the operation
+     */
+    @FunctionalInterface
+    public interface DatabaseOperation<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
     /**
      * Load player data from the database
      * @param uuid The player UUID
@@ -808,32 +1018,19 @@ public class DatabaseManager {
         ResultSet resultSet = null;
         
         try {
-            connection = getConnection();
+            connection = getReadConnection();
             if (connection == null) {
                 plugin.getLogger().warning("Failed to load player data: No database connection");
                 return null;
             }
             
-            String sql = "SELECT * FROM " + tablePrefix + "player_data WHERE uuid = ?";
-            statement = connection.prepareStatement(sql);
+            statement = connection.prepareStatement(playerDataStatements.getSelectSql());
             statement.setString(1, uuid.toString());
             
             resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
-                PlayerData playerData = new PlayerData(uuid, resultSet.getString("player_name"));
-                playerData.setVeinMinerEnabled(resultSet.getBoolean("veinminer_enabled"));
-                playerData.setLevel(resultSet.getInt("level"));
-                playerData.setExperience(resultSet.getInt("experience"));
-                playerData.setBlocksMined(resultSet.getLong("blocks_mined"));
-                playerData.setSkillPoints(resultSet.getInt("skill_points"));
-                playerData.setEfficiencyLevel(resultSet.getInt("efficiency_level"));
-                playerData.setLuckLevel(resultSet.getInt("luck_level"));
-                playerData.setEnergyLevel(resultSet.getInt("energy_level"));
-                playerData.setToolEnabled("PICKAXE", resultSet.getBoolean("pickaxe_enabled"));
-                playerData.setToolEnabled("AXE", resultSet.getBoolean("axe_enabled"));
-                playerData.setToolEnabled("SHOVEL", resultSet.getBoolean("shovel_enabled"));
-                playerData.setToolEnabled("HOE", resultSet.getBoolean("hoe_enabled"));
+                PlayerData playerData = playerDataStatements.read(resultSet, uuid);
                 
                 if (plugin.isDebugMode()) {
                     plugin.getLogger().info("Loaded player data for " + playerData.getPlayerName());
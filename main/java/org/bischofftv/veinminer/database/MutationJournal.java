@@ -0,0 +1,344 @@
+package org.bischofftv.veinminer.database;
+
+import org.bischofftv.veinminer.Veinminer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local journal of write batches. Every batch of player data or achievement changes is
+ * appended and synced to disk before it is sent to the database, and marked as applied once the
+ * database committed it. Batches that couldn't be written, e.g. during a database outage or because
+ * the server stopped, stay in the journal and are replayed in order once the database is reachable.
+ * <p>
+ * Each record is length-prefixed: length, kind, batch id, type, payload and a CRC32 of everything
+ * after the length. A torn record at the end of the file is dropped when the journal is opened.
+ * <p>
+ * Only used on the persistence thread, except for {@link #scheduleReplay()} and {@link #getPendingBatches()}.
+ */
+public class MutationJournal {
+
+    public static final byte TYPE_PLAYER_DATA = 1;
+    public static final byte TYPE_ACHIEVEMENTS = 2;
+
+    private static final byte KIND_BATCH = 1;
+    private static final byte KIND_APPLIED = 2;
+
+    // kind + batch id + type
+    private static final int HEADER_SIZE = 1 + 8 + 1;
+    // Records larger than this can only come from a corrupt length
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    // Rewrite the file without applied batches once it grows past this size
+    private static final long COMPACT_THRESHOLD_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Writes a replayed batch to the database
+     */
+    @FunctionalInterface
+    public interface ReplayHandler {
+        void replay(byte[] payload) throws IOException, SQLException;
+    }
+
+    private final Veinminer plugin;
+    private final File file;
+    private final Map<Byte, ReplayHandler> handlers = new HashMap<>();
+    // Batches appended but not applied yet, in append order
+    private final List<PendingBatch> pending = new ArrayList<>();
+    private FileChannel channel;
+    private long nextBatchId = 1;
+    private volatile int pendingCount;
+    private volatile boolean replayQueued;
+
+    public MutationJournal(Veinminer plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+    }
+
+    /**
+     * Register how batches of a type are written when they are replayed
+     * @param type The batch type
+     * @param handler The handler
+     */
+    public void registerHandler(byte type, ReplayHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Open the journal and read the batches that weren't applied before the last shutdown
+     * @throws IOException If the file can't be read or opened
+     */
+    public void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long validLength = readExisting();
+        if (validLength < channel.size()) {
+            plugin.getLogger().warning("Dropped " + (channel.size() - validLength) + " bytes of an incomplete record at the end of the mutation journal");
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        pendingCount = pending.size();
+
+        if (!pending.isEmpty()) {
+            plugin.getLogger().info("Mutation journal has " + pending.size() + " unsaved batches, they will be written once the database is reachable");
+        }
+    }
+
+    /**
+     * Append a batch and sync it to disk
+     * @param type The batch type
+     * @param payload The encoded batch
+     * @return The batch id, or -1 if the journal couldn't be written
+     */
+    public long append(byte type, byte[] payload) {
+        if (channel == null) {
+            return -1;
+        }
+
+        long batchId = nextBatchId++;
+        try {
+            writeRecord(KIND_BATCH, batchId, type, payload);
+            channel.force(false);
+            pending.add(new PendingBatch(batchId, type, payload));
+            pendingCount = pending.size();
+            return batchId;
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write to the mutation journal: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Mark a batch as written to the database, and compact the journal when possible
+     * @param batchId The batch id from append, ignored if negative
+     */
+    public void markApplied(long batchId) {
+        if (batchId < 0 || channel == null) {
+            return;
+        }
+
+        pending.removeIf(batch -> batch.id == batchId);
+        pendingCount = pending.size();
+        try {
+            if (pending.isEmpty()) {
+                // Nothing left to replay, start over with an empty file
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(false);
+            } else {
+                writeRecord(KIND_APPLIED, batchId, (byte) 0, new byte[0]);
+                channel.force(false);
+                if (channel.size() > COMPACT_THRESHOLD_BYTES) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to update the mutation journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write all pending batches to the database in the order they were appended
+     * @param exceptBatchId A batch the caller writes itself, or -1
+     * @throws SQLException If a batch couldn't be written, the rest stay pending
+     */
+    public void replayPending(long exceptBatchId) throws SQLException {
+        Iterator<PendingBatch> iterator = new ArrayList<>(pending).iterator();
+        int replayed = 0;
+        while (iterator.hasNext()) {
+            PendingBatch batch = iterator.next();
+            if (batch.id == exceptBatchId) {
+                continue;
+            }
+
+            ReplayHandler handler = handlers.get(batch.type);
+            if (handler == null) {
+                plugin.getLogger().warning("No handler for mutation journal batch type " + batch.type + ", skipping it");
+                markApplied(batch.id);
+                continue;
+            }
+
+            try {
+                handler.replay(batch.payload);
+            } catch (IOException e) {
+                // The payload can't be decoded, keeping it would block every later batch
+                plugin.getLogger().severe("Dropping unreadable mutation journal batch " + batch.id + ": " + e.getMessage());
+            }
+            markApplied(batch.id);
+            replayed++;
+        }
+
+        if (replayed > 0) {
+            plugin.getLogger().info("Replayed " + replayed + " batches from the mutation journal");
+        }
+    }
+
+    /**
+     * Queue a replay of pending batches on the persistence thread if the database is reachable.
+     * Called from the main thread, does nothing while a replay is already queued.
+     */
+    public void scheduleReplay() {
+        if (pendingCount == 0 || replayQueued || !plugin.getDatabaseManager().isConnectionValid()) {
+            return;
+        }
+
+        replayQueued = true;
+        plugin.getPersistenceService().run("replay mutation journal", () -> {
+            try {
+                replayPending(-1);
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to replay the mutation journal: " + e.getMessage(), e);
+            } finally {
+                replayQueued = false;
+            }
+        });
+    }
+
+    /**
+     * Get the number of batches that haven't been written to the database yet
+     * @return The number of batches
+     */
+    public int getPendingBatches() {
+        return pendingCount;
+    }
+
+    /**
+     * Close the journal file. Pending batches stay in it for the next start.
+     */
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to close the mutation journal: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * Read all records, keeping batches that weren't marked as applied
+     * @return The length of the file up to the last complete record
+     * @throws IOException If the file can't be read
+     */
+    private long readExisting() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+
+        while (position + 4 <= size) {
+            lengthBuffer.clear();
+            readFully(lengthBuffer, position);
+            int length = lengthBuffer.getInt(0);
+            if (length < HEADER_SIZE + 4 || length > MAX_RECORD_SIZE || position + 4 + length > size) {
+                break;
+            }
+
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(record, position + 4);
+            record.flip();
+
+            CRC32 crc = new CRC32();
+            crc.update(record.array(), 0, length - 4);
+            if ((int) crc.getValue() != record.getInt(length - 4)) {
+                break;
+            }
+
+            byte kind = record.get();
+            long batchId = record.getLong();
+            byte type = record.get();
+            if (kind == KIND_BATCH) {
+                byte[] payload = new byte[length - HEADER_SIZE - 4];
+                record.get(payload);
+                pending.add(new PendingBatch(batchId, type, payload));
+            } else if (kind == KIND_APPLIED) {
+                pending.removeIf(batch -> batch.id == batchId);
+            }
+            nextBatchId = Math.max(nextBatchId, batchId + 1);
+            position += 4 + length;
+        }
+        return position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of mutation journal");
+            }
+        }
+    }
+
+    private void writeRecord(byte kind, long batchId, byte type, byte[] payload) throws IOException {
+        int length = HEADER_SIZE + payload.length + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        buffer.putInt(length);
+        buffer.put(kind);
+        buffer.putLong(batchId);
+        buffer.put(type);
+        buffer.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, length - 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the pending batches, replacing the file atomically
+     */
+    private void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        FileChannel previous = channel;
+        try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = target;
+            for (PendingBatch batch : pending) {
+                writeRecord(KIND_BATCH, batch.id, batch.type, batch.payload);
+            }
+            target.force(false);
+        } finally {
+            channel = previous;
+        }
+
+        previous.close();
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * A batch that hasn't been applied to the database yet
+     */
+    private static final class PendingBatch {
+        private final long id;
+        private final byte type;
+        private final byte[] payload;
+
+        private PendingBatch(long id, byte type, byte[] payload) {
+            this.id = id;
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+}
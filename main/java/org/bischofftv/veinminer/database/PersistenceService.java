@@ -0,0 +1,101 @@
+package org.bischofftv.veinminer.database;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bukkit.Bukkit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs all player data and achievement JDBC work off the server thread.
+ * Database calls run on a single dedicated thread, so writes for a player are applied in the
+ * order they were queued and a rejoining player's load always sees the save from their last quit.
+ * Results that touch Bukkit state are handed back through {@link #mainThread()}.
+ */
+public class PersistenceService {
+
+    // How long shutdown waits for queued writes before giving up
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final Veinminer plugin;
+    private final ExecutorService executor;
+    private final Executor mainThread;
+
+    public PersistenceService(Veinminer plugin) {
+        this.plugin = plugin;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VeinMiner-Persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // While disabling, the scheduler no longer accepts tasks, so run the callback directly
+        this.mainThread = command -> {
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, command);
+            } else {
+                command.run();
+            }
+        };
+    }
+
+    /**
+     * Run a database task on the persistence thread
+     * @param description What the task does, used in error messages
+     * @param task The task
+     * @param <T> The result type
+     * @return A future completed with the task's result
+     */
+    public <T> CompletableFuture<T> supply(String description, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor).whenComplete((result, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                plugin.getLogger().warning("Database task failed (" + description + "): " + cause.getMessage());
+                if (plugin.isDebugMode()) {
+                    cause.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run a database task on the persistence thread
+     * @param description What the task does, used in error messages
+     * @param task The task
+     * @return A future completed when the task has run
+     */
+    public CompletableFuture<Void> run(String description, Runnable task) {
+        return supply(description, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Get an executor that runs callbacks on the server thread
+     * @return The executor
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Stop accepting tasks and wait for queued writes to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for pending database writes, some data may not have been saved.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
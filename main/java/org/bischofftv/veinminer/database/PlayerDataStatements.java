@@ -0,0 +1,229 @@
+package org.bischofftv.veinminer.database;
+
+import org.bischofftv.veinminer.data.PlayerData;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * SQL for writing player_data rows, built once per dialect. Only the column groups in a dirty mask are written.
+ * <ul>
+ *     <li>Level, skills, settings and counters that were set outright are written with a versioned update,
+ *     which only matches if no other server changed the row since it was read.</li>
+ *     <li>Increments of experience and blocks mined are added to the stored value, so writes
+ *     from several servers add up instead of overwriting each other.</li>
+ *     <li>New rows are created with an upsert: INSERT ... ON DUPLICATE KEY UPDATE on MySQL and
+ *     INSERT ... ON CONFLICT DO UPDATE on SQLite.</li>
+ * </ul>
+ */
+public final class PlayerDataStatements {
+
+    private static final String[] SETTINGS_COLUMNS = {"veinminer_enabled", "pickaxe_enabled", "axe_enabled", "shovel_enabled", "hoe_enabled"};
+    private static final String[] PROGRESS_COLUMNS = {"level"};
+    private static final String[] SKILLS_COLUMNS = {"skill_points", "efficiency_level", "luck_level", "energy_level"};
+    private static final String[] COUNTER_COLUMNS = {"experience", "blocks_mined"};
+
+    // Tool keys as stored in PlayerData, in the order of the tool columns
+    private static final String[] TOOLS = {"pickaxe", "axe", "shovel", "hoe"};
+
+    // One statement per combination of dirty flags, built once
+    private final String[] upsertByMask = new String[PlayerData.DIRTY_ALL + 1];
+    private final String[] updateByMask = new String[PlayerData.DIRTY_ALL + 1];
+    private final String incrementSql;
+    private final String selectSql;
+
+    /**
+     * @param tablePrefix The table prefix
+     * @param sqlite True for SQLite syntax, false for MySQL
+     */
+    public PlayerDataStatements(String tablePrefix, boolean sqlite) {
+        String table = tablePrefix + "player_data";
+        String now = sqlite ? "datetime('now')" : "NOW()";
+        for (int mask = 0; mask <= PlayerData.DIRTY_ALL; mask++) {
+            upsertByMask[mask] = buildUpsert(table, mask, sqlite, now);
+            updateByMask[mask] = buildVersionedUpdate(table, mask, now);
+        }
+        incrementSql = "UPDATE " + table + " SET experience = experience + ?, blocks_mined = blocks_mined + ?, " +
+                "last_updated = " + now + " WHERE uuid = ?";
+        selectSql = "SELECT * FROM " + table + " WHERE uuid = ?";
+    }
+
+    /**
+     * Get the upsert statement for a combination of changed column groups
+     * @param mask A combination of the PlayerData.DIRTY_ flags
+     * @return The SQL
+     */
+    public String getUpsertSql(int mask) {
+        return upsertByMask[mask & PlayerData.DIRTY_ALL];
+    }
+
+    /**
+     * Bind a player's values to a statement from getUpsertSql
+     * @param statement The statement
+     * @param playerData The player data
+     * @param mask The mask the statement was built for
+     * @throws SQLException If an SQL error occurs
+     */
+    public void bindUpsert(PreparedStatement statement, PlayerData playerData, int mask) throws SQLException {
+        statement.setString(1, playerData.getUuid().toString());
+        statement.setString(2, playerData.getPlayerName());
+        bindColumns(statement, playerData, mask, 3);
+    }
+
+    /**
+     * Get the update statement for a combination of changed column groups. It only matches
+     * the row if its version is still the one the data was read with, and increments the version.
+     * @param mask A combination of the PlayerData.DIRTY_ flags
+     * @return The SQL
+     */
+    public String getVersionedUpdateSql(int mask) {
+        return updateByMask[mask & PlayerData.DIRTY_ALL];
+    }
+
+    /**
+     * Bind a player's values to a statement from getVersionedUpdateSql
+     * @param statement The statement
+     * @param playerData The player data
+     * @param mask The mask the statement was built for
+     * @throws SQLException If an SQL error occurs
+     */
+    public void bindVersionedUpdate(PreparedStatement statement, PlayerData playerData, int mask) throws SQLException {
+        statement.setString(1, playerData.getPlayerName());
+        int index = bindColumns(statement, playerData, mask, 2);
+        statement.setString(index++, playerData.getUuid().toString());
+        statement.setLong(index, playerData.getVersion());
+    }
+
+    /**
+     * Get the statement that adds the pending increments to the stored counters
+     * @return The SQL
+     */
+    public String getIncrementSql() {
+        return incrementSql;
+    }
+
+    /**
+     * Bind a player's pending increments to the statement from getIncrementSql
+     * @param statement The statement
+     * @param playerData The player data
+     * @throws SQLException If an SQL error occurs
+     */
+    public void bindIncrement(PreparedStatement statement, PlayerData playerData) throws SQLException {
+        statement.setInt(1, playerData.getExperienceDelta());
+        statement.setLong(2, playerData.getBlocksMinedDelta());
+        statement.setString(3, playerData.getUuid().toString());
+    }
+
+    /**
+     * Get the statement that selects a player's row by UUID
+     * @return The SQL
+     */
+    public String getSelectSql() {
+        return selectSql;
+    }
+
+    /**
+     * Read a player's row from the result of getSelectSql
+     * @param resultSet The result set, positioned on the row
+     * @param uuid The player UUID
+     * @return The player data, without unsaved changes
+     * @throws SQLException If an SQL error occurs
+     */
+    public PlayerData read(ResultSet resultSet, UUID uuid) throws SQLException {
+        PlayerData playerData = new PlayerData(uuid, resultSet.getString("player_name"));
+        playerData.setVeinMinerEnabled(resultSet.getBoolean("veinminer_enabled"));
+        playerData.setLevel(resultSet.getInt("level"));
+        playerData.setExperience(resultSet.getInt("experience"));
+        playerData.setBlocksMined(resultSet.getLong("blocks_mined"));
+        playerData.setSkillPoints(resultSet.getInt("skill_points"));
+        playerData.setEfficiencyLevel(resultSet.getInt("efficiency_level"));
+        playerData.setLuckLevel(resultSet.getInt("luck_level"));
+        playerData.setEnergyLevel(resultSet.getInt("energy_level"));
+        playerData.setToolEnabled("pickaxe", resultSet.getBoolean("pickaxe_enabled"));
+        playerData.setToolEnabled("axe", resultSet.getBoolean("axe_enabled"));
+        playerData.setToolEnabled("shovel", resultSet.getBoolean("shovel_enabled"));
+        playerData.setToolEnabled("hoe", resultSet.getBoolean("hoe_enabled"));
+        playerData.setVersion(resultSet.getLong("version"));
+        playerData.clearDirty();
+        return playerData;
+    }
+
+    private static int bindColumns(PreparedStatement statement, PlayerData playerData, int mask, int index) throws SQLException {
+        if ((mask & PlayerData.DIRTY_SETTINGS) != 0) {
+            statement.setBoolean(index++, playerData.isVeinMinerEnabled());
+            for (String tool : TOOLS) {
+                statement.setBoolean(index++, playerData.isToolEnabled(tool));
+            }
+        }
+        if ((mask & PlayerData.DIRTY_PROGRESS) != 0) {
+            statement.setInt(index++, playerData.getLevel());
+        }
+        if ((mask & PlayerData.DIRTY_SKILLS) != 0) {
+            statement.setInt(index++, playerData.getSkillPoints());
+            statement.setInt(index++, playerData.getEfficiencyLevel());
+            statement.setInt(index++, playerData.getLuckLevel());
+            statement.setInt(index++, playerData.getEnergyLevel());
+        }
+        if ((mask & PlayerData.DIRTY_COUNTERS) != 0) {
+            statement.setInt(index++, playerData.getExperience());
+            statement.setLong(index++, playerData.getBlocksMined());
+        }
+        return index;
+    }
+
+    // Columns of the groups in a mask, in the order bindColumns binds them
+    private static String[] columns(int mask) {
+        StringBuilder names = new StringBuilder();
+        appendGroup(names, mask, PlayerData.DIRTY_SETTINGS, SETTINGS_COLUMNS);
+        appendGroup(names, mask, PlayerData.DIRTY_PROGRESS, PROGRESS_COLUMNS);
+        appendGroup(names, mask, PlayerData.DIRTY_SKILLS, SKILLS_COLUMNS);
+        appendGroup(names, mask, PlayerData.DIRTY_COUNTERS, COUNTER_COLUMNS);
+        return names.length() == 0 ? new String[0] : names.toString().split(",");
+    }
+
+    private static void appendGroup(StringBuilder names, int mask, int flag, String[] group) {
+        if ((mask & flag) == 0) {
+            return;
+        }
+        for (String name : group) {
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(name);
+        }
+    }
+
+    private static String buildUpsert(String table, int mask, boolean sqlite, String now) {
+        StringBuilder columns = new StringBuilder("uuid, player_name");
+        StringBuilder values = new StringBuilder("?, ?");
+        StringBuilder updates = new StringBuilder(assignment("player_name", sqlite));
+
+        for (String name : columns(mask)) {
+            columns.append(", ").append(name);
+            values.append(", ?");
+            updates.append(", ").append(assignment(name, sqlite));
+        }
+        // An existing row changed, so other servers' versioned updates must not match anymore
+        updates.append(", version = version + 1");
+        updates.append(", last_updated = ").append(now);
+
+        return "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ") " +
+                (sqlite ? "ON CONFLICT(uuid) DO UPDATE SET " : "ON DUPLICATE KEY UPDATE ") + updates;
+    }
+
+    private static String buildVersionedUpdate(String table, int mask, String now) {
+        StringBuilder updates = new StringBuilder("player_name = ?");
+        for (String name : columns(mask)) {
+            updates.append(", ").append(name).append(" = ?");
+        }
+        return "UPDATE " + table + " SET " + updates + ", version = version + 1, last_updated = " + now +
+                " WHERE uuid = ? AND version = ?";
+    }
+
+    // Take the value from the row that failed to insert
+    private static String assignment(String column, boolean sqlite) {
+        return column + " = " + (sqlite ? "excluded." + column : "VALUES(" + column + ")");
+    }
+}
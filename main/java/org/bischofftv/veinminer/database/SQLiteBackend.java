@@ -0,0 +1,185 @@
+package org.bischofftv.veinminer.database;
+
+import org.bischofftv.veinminer.Veinminer;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connections for the SQLite database. The database runs in WAL mode, so one writer connection
+ * and any number of readers work at the same time without locking each other out.
+ * <ul>
+ *     <li>Writes go through the writer connection, which is only used on the persistence thread.</li>
+ *     <li>Every other thread gets its own read-only connection, so async reads such as placeholder
+ *     refreshes never share a connection, or a transaction, with the writer.</li>
+ *     <li>Prepared statements are cached per connection, since the SQLite driver doesn't cache them.</li>
+ * </ul>
+ */
+public class SQLiteBackend {
+
+    // How long a connection waits for a lock before failing, e.g. while a checkpoint runs
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private final Veinminer plugin;
+    private final String url;
+    private Connection writer;
+    private final Map<Thread, Connection> readers = new ConcurrentHashMap<>();
+    // Only the thread that owns a connection uses its statements
+    private final Map<Connection, Map<String, PreparedStatement>> statementCache = new ConcurrentHashMap<>();
+
+    public SQLiteBackend(Veinminer plugin, File databaseFile) {
+        this.plugin = plugin;
+        this.url = "jdbc:sqlite:" + databaseFile;
+    }
+
+    /**
+     * Open the writer connection and switch the database to WAL mode
+     * @throws SQLException If the database can't be opened
+     */
+    public void open() throws SQLException {
+        writer = DriverManager.getConnection(url);
+        try (Statement statement = writer.createStatement()) {
+            // WAL lets readers run while a write is in progress, and NORMAL only syncs on checkpoints
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+            statement.execute("PRAGMA temp_store=MEMORY");
+        }
+    }
+
+    /**
+     * Get the connection used for writes
+     * @return The writer connection
+     */
+    public Connection getWriteConnection() {
+        return writer;
+    }
+
+    /**
+     * Get the calling thread's read-only connection, opening it on first use.
+     * The connection stays open for the thread, don't close it.
+     * @return The read connection
+     * @throws SQLException If the connection can't be opened
+     */
+    public Connection getReadConnection() throws SQLException {
+        Thread thread = Thread.currentThread();
+        Connection reader = readers.get(thread);
+        if (reader != null && !reader.isClosed()) {
+            return reader;
+        }
+
+        closeDeadReaders();
+        reader = DriverManager.getConnection(url);
+        try (Statement statement = reader.createStatement()) {
+            statement.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MILLIS);
+            statement.execute("PRAGMA query_only=ON");
+        }
+        readers.put(thread, reader);
+
+        if (plugin.isDebugMode()) {
+            plugin.debug("Opened SQLite read connection for " + thread.getName() + " (" + readers.size() + " open)");
+        }
+        return reader;
+    }
+
+    /**
+     * Get a prepared statement for a connection, reusing the one prepared for the same SQL before.
+     * Return it with {@link #release(PreparedStatement)} instead of closing it.
+     * @param connection The connection
+     * @param sql The SQL
+     * @return The statement
+     * @throws SQLException If the statement can't be prepared
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        Map<String, PreparedStatement> statements = statementCache.computeIfAbsent(connection, key -> new HashMap<>());
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Reset a cached statement so it can be used again
+     * @param statement The statement from prepare
+     */
+    public void release(PreparedStatement statement) {
+        try {
+            statement.clearParameters();
+            statement.clearBatch();
+        } catch (SQLException e) {
+            // A broken statement is prepared again next time
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Get the number of open read connections
+     * @return The number of connections
+     */
+    public int getOpenReaders() {
+        return readers.size();
+    }
+
+    /**
+     * Close read connections of threads that have ended, e.g. idle async scheduler workers
+     */
+    private void closeDeadReaders() {
+        Iterator<Map.Entry<Thread, Connection>> iterator = readers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Thread, Connection> entry = iterator.next();
+            if (!entry.getKey().isAlive()) {
+                closeConnection(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Close all connections and their cached statements
+     */
+    public void close() {
+        for (Connection reader : readers.values()) {
+            closeConnection(reader);
+        }
+        readers.clear();
+
+        if (writer != null) {
+            // A checkpoint on close folds the WAL back into the database file
+            closeConnection(writer);
+            writer = null;
+        }
+    }
+
+    private void closeConnection(Connection connection) {
+        Map<String, PreparedStatement> statements = statementCache.remove(connection);
+        if (statements != null) {
+            for (PreparedStatement statement : statements.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Failed to close SQLite connection: " + e.getMessage());
+        }
+    }
+}
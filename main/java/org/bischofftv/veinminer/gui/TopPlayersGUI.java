@@ -1,6 +1,8 @@
 package org.bischofftv.veinminer.gui;
 
 import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.leaderboard.LeaderboardService;
+import org.bischofftv.veinminer.leaderboard.RankedIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -10,24 +12,16 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 
 public class TopPlayersGUI {
 
-    private final Veinminer plugin;
+    // Player heads fill the slots from here up to the back button in slot 49
+    private static final int FIRST_HEAD_SLOT = 10;
+    private static final int MAX_HEADS = 49 - FIRST_HEAD_SLOT;
 
-    // Cache for top players data
-    private Map<String, List<TopPlayerData>> topPlayersCache = new HashMap<>();
-    private long lastCacheUpdate = 0;
-    private static final long CACHE_DURATION = 5 * 60 * 1000; // 5 minutes in milliseconds
+    private final Veinminer plugin;
 
     public TopPlayersGUI(Veinminer plugin) {
         this.plugin = plugin;
@@ -47,11 +41,6 @@ public class TopPlayersGUI {
         // Create inventory
         Inventory inventory = Bukkit.createInventory(null, 54, ChatColor.GOLD + "VeinMiner Top Players");
 
-        // Check if cache needs to be refreshed
-        if (System.currentTimeMillis() - lastCacheUpdate > CACHE_DURATION) {
-            refreshCache();
-        }
-
         // Add top players by level
         if (plugin.getLevelManager().isEnabled()) {
             ItemStack levelItem = createItem(Material.EXPERIENCE_BOTTLE,
@@ -98,18 +87,18 @@ public class TopPlayersGUI {
     public void openTopLevelPlayersGUI(Player player) {
         Inventory inventory = Bukkit.createInventory(null, 54, ChatColor.GOLD + "Top Players by Level");
 
-        List<TopPlayerData> topPlayers = topPlayersCache.getOrDefault("level", new ArrayList<>());
+        List<RankedIndex.Entry> topPlayers = plugin.getLeaderboardService().getSnapshot().getTop(LeaderboardService.Board.LEVEL);
 
         // Add player heads for top players
-        for (int i = 0; i < Math.min(topPlayers.size(), 10); i++) {
-            TopPlayerData playerData = topPlayers.get(i);
+        for (int i = 0; i < getHeadCount(topPlayers); i++) {
+            RankedIndex.Entry playerData = topPlayers.get(i);
 
             ItemStack playerHead = new ItemStack(Material.PLAYER_HEAD);
             SkullMeta meta = (SkullMeta) playerHead.getItemMeta();
             meta.setDisplayName(ChatColor.GOLD + "#" + (i + 1) + " " + playerData.getPlayerName());
 
             List<String> lore = new ArrayList<>();
-            lore.add(ChatColor.YELLOW + "Level: " + ChatColor.GREEN + playerData.getValue());
+            lore.add(ChatColor.YELLOW + "Level: " + ChatColor.GREEN + LeaderboardService.Board.LEVEL.getDisplayValue(playerData.getScore()));
             meta.setLore(lore);
 
             // Try to set the player's skin
@@ -120,7 +109,7 @@ public class TopPlayersGUI {
             }
 
             playerHead.setItemMeta(meta);
-            inventory.setItem(i + 10, playerHead);
+            inventory.setItem(i + FIRST_HEAD_SLOT, playerHead);
         }
 
         // Add back button
@@ -147,18 +136,18 @@ public class TopPlayersGUI {
     public void openTopAchievementsPlayersGUI(Player player) {
         Inventory inventory = Bukkit.createInventory(null, 54, ChatColor.GOLD + "Top Players by Achievements");
 
-        List<TopPlayerData> topPlayers = topPlayersCache.getOrDefault("achievements", new ArrayList<>());
+        List<RankedIndex.Entry> topPlayers = plugin.getLeaderboardService().getSnapshot().getTop(LeaderboardService.Board.ACHIEVEMENTS);
 
         // Add player heads for top players
-        for (int i = 0; i < Math.min(topPlayers.size(), 10); i++) {
-            TopPlayerData playerData = topPlayers.get(i);
+        for (int i = 0; i < getHeadCount(topPlayers); i++) {
+            RankedIndex.Entry playerData = topPlayers.get(i);
 
             ItemStack playerHead = new ItemStack(Material.PLAYER_HEAD);
             SkullMeta meta = (SkullMeta) playerHead.getItemMeta();
             meta.setDisplayName(ChatColor.GOLD + "#" + (i + 1) + " " + playerData.getPlayerName());
 
             List<String> lore = new ArrayList<>();
-            lore.add(ChatColor.YELLOW + "Achievements: " + ChatColor.GREEN + playerData.getValue());
+            lore.add(ChatColor.YELLOW + "Achievements: " + ChatColor.GREEN + LeaderboardService.Board.ACHIEVEMENTS.getDisplayValue(playerData.getScore()));
             meta.setLore(lore);
 
             // Try to set the player's skin
@@ -169,7 +158,7 @@ public class TopPlayersGUI {
             }
 
             playerHead.setItemMeta(meta);
-            inventory.setItem(i + 10, playerHead);
+            inventory.setItem(i + FIRST_HEAD_SLOT, playerHead);
         }
 
         // Add back button
@@ -196,18 +185,18 @@ public class TopPlayersGUI {
     public void openTopBlocksPlayersGUI(Player player) {
         Inventory inventory = Bukkit.createInventory(null, 54, ChatColor.GOLD + "Top Players by Blocks Mined");
 
-        List<TopPlayerData> topPlayers = topPlayersCache.getOrDefault("blocks", new ArrayList<>());
+        List<RankedIndex.Entry> topPlayers = plugin.getLeaderboardService().getSnapshot().getTop(LeaderboardService.Board.BLOCKS);
 
         // Add player heads for top players
-        for (int i = 0; i < Math.min(topPlayers.size(), 10); i++) {
-            TopPlayerData playerData = topPlayers.get(i);
+        for (int i = 0; i < getHeadCount(topPlayers); i++) {
+            RankedIndex.Entry playerData = topPlayers.get(i);
 
             ItemStack playerHead = new ItemStack(Material.PLAYER_HEAD);
             SkullMeta meta = (SkullMeta) playerHead.getItemMeta();
             meta.setDisplayName(ChatColor.GOLD + "#" + (i + 1) + " " + playerData.getPlayerName());
 
             List<String> lore = new ArrayList<>();
-            lore.add(ChatColor.YELLOW + "Blocks Mined: " + ChatColor.GREEN + playerData.getValue());
+            lore.add(ChatColor.YELLOW + "Blocks Mined: " + ChatColor.GREEN + LeaderboardService.Board.BLOCKS.getDisplayValue(playerData.getScore()));
             meta.setLore(lore);
 
             // Try to set the player's skin
@@ -218,7 +207,7 @@ public class TopPlayersGUI {
             }
 
             playerHead.setItemMeta(meta);
-            inventory.setItem(i + 10, playerHead);
+            inventory.setItem(i + FIRST_HEAD_SLOT, playerHead);
         }
 
         // Add back button
@@ -271,149 +260,12 @@ public class TopPlayersGUI {
     }
 
     /**
-     * Refresh the cache of top players
+     * Get how many of the top players to show, the configured leaderboard size limited to the free slots
+     * @param topPlayers The top players
+     * @return The number of player heads
      */
-    private void refreshCache() {
-        if (plugin.getDatabaseManager() == null || !plugin.getDatabaseManager().checkConnection()) {
-            return;
-        }
-
-        // Clear existing cache
-        topPlayersCache.clear();
-
-        // Get top players by level
-        topPlayersCache.put("level", getTopPlayersByLevel(10));
-
-        // Get top players by achievements
-        topPlayersCache.put("achievements", getTopPlayersByAchievements(10));
-
-        // Get top players by blocks mined
-        topPlayersCache.put("blocks", getTopPlayersByBlocksMined(10));
-
-        // Update cache timestamp
-        lastCacheUpdate = System.currentTimeMillis();
-    }
-
-    /**
-     * Get top players by level
-     * @param limit The maximum number of players to return
-     * @return A list of top players by level
-     */
-    private List<TopPlayerData> getTopPlayersByLevel(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = plugin.getDatabaseManager().getConnection();
-            if (connection == null) {
-                return topPlayers;
-            }
-
-            String sql = "SELECT player_name, level FROM " + plugin.getDatabaseManager().getTablePrefix() +
-                    "player_data ORDER BY level DESC, experience DESC LIMIT ?";
-            statement = connection.prepareStatement(sql);
-            statement.setInt(1, limit);
-
-            resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String playerName = resultSet.getString("player_name");
-                int level = resultSet.getInt("level");
-
-                topPlayers.add(new TopPlayerData(playerName, level));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by level: " + e.getMessage());
-        } finally {
-            plugin.getDatabaseManager().closeResources(resultSet, statement, connection);
-        }
-
-        return topPlayers;
-    }
-
-    /**
-     * Get top players by achievements completed
-     * @param limit The maximum number of players to return
-     * @return A list of top players by achievements completed
-     */
-    private List<TopPlayerData> getTopPlayersByAchievements(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = plugin.getDatabaseManager().getConnection();
-            if (connection == null) {
-                return topPlayers;
-            }
-
-            String sql = "SELECT a.uuid, p.player_name, COUNT(*) as completed_count " +
-                    "FROM " + plugin.getDatabaseManager().getTablePrefix() + "achievements a " +
-                    "JOIN " + plugin.getDatabaseManager().getTablePrefix() + "player_data p ON a.uuid = p.uuid " +
-                    "WHERE a.completed = 1 " +
-                    "GROUP BY a.uuid, p.player_name " +
-                    "ORDER BY completed_count DESC LIMIT ?";
-
-            statement = connection.prepareStatement(sql);
-            statement.setInt(1, limit);
-
-            resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String playerName = resultSet.getString("player_name");
-                int completedCount = resultSet.getInt("completed_count");
-
-                topPlayers.add(new TopPlayerData(playerName, completedCount));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by achievements: " + e.getMessage());
-        } finally {
-            plugin.getDatabaseManager().closeResources(resultSet, statement, connection);
-        }
-
-        return topPlayers;
-    }
-
-    /**
-     * Get top players by blocks mined
-     * @param limit The maximum number of players to return
-     * @return A list of top players by blocks mined
-     */
-    private List<TopPlayerData> getTopPlayersByBlocksMined(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
-
-        try {
-            connection = plugin.getDatabaseManager().getConnection();
-            if (connection == null) {
-                return topPlayers;
-            }
-
-            String sql = "SELECT player_name, blocks_mined FROM " + plugin.getDatabaseManager().getTablePrefix() +
-                    "player_data ORDER BY blocks_mined DESC LIMIT ?";
-            statement = connection.prepareStatement(sql);
-            statement.setInt(1, limit);
-
-            resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                String playerName = resultSet.getString("player_name");
-                int blocksMined = resultSet.getInt("blocks_mined");
-
-                topPlayers.add(new TopPlayerData(playerName, blocksMined));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by blocks mined: " + e.getMessage());
-        } finally {
-            plugin.getDatabaseManager().closeResources(resultSet, statement, connection);
-        }
-
-        return topPlayers;
+    private int getHeadCount(List<RankedIndex.Entry> topPlayers) {
+        return Math.min(topPlayers.size(), Math.min(plugin.getLeaderboardService().getSize(), MAX_HEADS));
     }
 
     /**
@@ -444,25 +296,4 @@ public class TopPlayersGUI {
         item.setItemMeta(meta);
         return item;
     }
-
-    /**
-     * Class to store top player data
-     */
-    private static class TopPlayerData {
-        private final String playerName;
-        private final int value;
-
-        public TopPlayerData(String playerName, int value) {
-            this.playerName = playerName;
-            this.value = value;
-        }
-
-        public String getPlayerName() {
-            return playerName;
-        }
-
-        public int getValue() {
-            return value;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,299 @@
+package org.bischofftv.veinminer.leaderboard;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.data.PlayerData;
+import org.bischofftv.veinminer.utils.BackgroundRefreshCache;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Rankings of all players by level, blocks mined and completed achievements, kept in memory and
+ * shared by the top players GUI and the placeholders.
+ * <ul>
+ *     <li>The stored scores are read at startup, after that the boards are updated whenever a loaded
+ *     player's stats change, so top lists and ranks never have to sort the player_data table.</li>
+ *     <li>The top players are published as immutable snapshots, rebuilt in the background once the
+ *     current one is older than leaderboards.refresh-interval.</li>
+ *     <li>Every leaderboards.reload-interval the stored scores of players who aren't online are read
+ *     again, to pick up progress they made on other servers.</li>
+ * </ul>
+ */
+public class LeaderboardService {
+
+    /**
+     * The rankings kept by the service
+     */
+    public enum Board {
+        // Ordered by level, then experience
+        LEVEL,
+        BLOCKS,
+        ACHIEVEMENTS;
+
+        /**
+         * Get the value shown for a score on this board
+         * @param score The score from the index
+         * @return The level for the level board, the score otherwise
+         */
+        public long getDisplayValue(long score) {
+            return this == LEVEL ? score >>> 32 : score;
+        }
+    }
+
+    private final Veinminer plugin;
+    private final Map<Board, RankedIndex> indexes = new EnumMap<>(Board.class);
+    private volatile boolean loaded;
+
+    // Settings
+    private volatile int size;
+    private volatile BackgroundRefreshCache<LeaderboardSnapshot> snapshots;
+    private BukkitTask reloadTask;
+
+    public LeaderboardService(Veinminer plugin) {
+        this.plugin = plugin;
+        for (Board board : Board.values()) {
+            indexes.put(board, new RankedIndex());
+        }
+        loadConfig();
+    }
+
+    /**
+     * Load the leaderboard settings and restart the reload task
+     */
+    public void loadConfig() {
+        size = Math.max(1, plugin.getConfig().getInt("leaderboards.size", 10));
+        long refreshIntervalMillis = Math.max(1, plugin.getConfig().getInt("leaderboards.refresh-interval", 30)) * 1000L;
+        int reloadIntervalMinutes = plugin.getConfig().getInt("leaderboards.reload-interval", 10);
+
+        // Keep showing the current top players until the new cache has loaded its first snapshot
+        LeaderboardSnapshot current = snapshots != null ? snapshots.get() : LeaderboardSnapshot.EMPTY;
+        snapshots = new BackgroundRefreshCache<>(plugin, "leaderboards", refreshIntervalMillis, this::createSnapshot, current);
+
+        if (reloadTask != null) {
+            reloadTask.cancel();
+            reloadTask = null;
+        }
+        if (reloadIntervalMinutes > 0) {
+            long intervalTicks = reloadIntervalMinutes * 60L * 20L;
+            reloadTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::reload, intervalTicks, intervalTicks);
+        }
+    }
+
+    /**
+     * Read the stored scores of all players in the background. Scores that were updated in the
+     * meantime are newer than the stored ones and are kept.
+     */
+    public void load() {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            long startTime = System.currentTimeMillis();
+            try {
+                int players = loadStoredScores(null);
+                loaded = true;
+                snapshots.refresh();
+
+                if (plugin.isDebugMode()) {
+                    plugin.debug("Loaded leaderboards for " + players + " players, took " +
+                            (System.currentTimeMillis() - startTime) + "ms");
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to load leaderboards: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Read the stored scores again in the background, replacing the scores of players who aren't online
+     * and removing those who no longer have completed achievements from the achievements board.
+     * Runs on the main thread, where the online players can be collected safely.
+     */
+    public void reload() {
+        if (!loaded) {
+            return;
+        }
+
+        // Online players' scores in memory are newer than the stored ones
+        Set<UUID> online = new HashSet<>();
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+        }
+
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                int players = loadStoredScores(online);
+                snapshots.refresh();
+
+                if (plugin.isDebugMode()) {
+                    plugin.debug("Reloaded leaderboard scores for " + players + " players");
+                }
+            } catch (SQLException e) {
+                plugin.getLogger().warning("Failed to reload leaderboards: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Read the stored scores into the indexes
+     * @param online Players whose scores are only added if missing, or null to only add missing scores
+     * @return The number of players read
+     * @throws SQLException If an SQL error occurs
+     */
+    private int loadStoredScores(Set<UUID> online) throws SQLException {
+        String prefix = plugin.getDatabaseManager().getTablePrefix();
+        return plugin.getDatabaseManager().executeRead(connection -> {
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, player_name, level, experience, blocks_mined FROM " + prefix + "player_data");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    UUID uuid = UUID.fromString(resultSet.getString("uuid"));
+                    String playerName = resultSet.getString("player_name");
+                    boolean replace = online != null && !online.contains(uuid);
+                    put(Board.LEVEL, uuid, playerName, levelScore(resultSet.getInt("level"), resultSet.getInt("experience")), replace);
+                    put(Board.BLOCKS, uuid, playerName, resultSet.getLong("blocks_mined"), replace);
+                    count++;
+                }
+            }
+
+            // A range scan of the completed_achievements index, the achievements table isn't touched
+            Set<UUID> ranked = new HashSet<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT uuid, player_name, completed_achievements FROM " + prefix + "player_data " +
+                            "WHERE completed_achievements > 0");
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    UUID uuid = UUID.fromString(resultSet.getString("uuid"));
+                    boolean replace = online != null && !online.contains(uuid);
+                    put(Board.ACHIEVEMENTS, uuid, resultSet.getString("player_name"), resultSet.getInt("completed_achievements"), replace);
+                    ranked.add(uuid);
+                }
+            }
+
+            if (online != null) {
+                // Players left out by the query have no completed achievements anymore, e.g. after rows were edited by hand
+                ranked.addAll(online);
+                indexes.get(Board.ACHIEVEMENTS).retainAll(ranked);
+            }
+            return count;
+        });
+    }
+
+    private void put(Board board, UUID uuid, String playerName, long score, boolean replace) {
+        if (replace) {
+            indexes.get(board).update(uuid, playerName, score);
+        } else {
+            indexes.get(board).putIfAbsent(uuid, playerName, score);
+        }
+    }
+
+    /**
+     * Build a snapshot of the top players. Runs on an async thread.
+     * @return The snapshot, or null while the stored scores are still loading
+     */
+    private LeaderboardSnapshot createSnapshot() {
+        if (!loaded) {
+            return null;
+        }
+
+        Map<Board, List<RankedIndex.Entry>> top = new EnumMap<>(Board.class);
+        for (Board board : Board.values()) {
+            top.put(board, indexes.get(board).getTop(size));
+        }
+        return new LeaderboardSnapshot(top, System.currentTimeMillis());
+    }
+
+    /**
+     * Check if the stored scores have been read
+     * @return True once the initial load finished
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Get the current top players of all boards without blocking. A stale snapshot is
+     * rebuilt in the background and replaced once it is ready.
+     * @return The snapshot
+     */
+    public LeaderboardSnapshot getSnapshot() {
+        return snapshots.get();
+    }
+
+    /**
+     * Rebuild the snapshot of the top players in the background
+     */
+    public void refresh() {
+        snapshots.refresh();
+    }
+
+    /**
+     * Get the number of players on each board
+     * @return The board size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Update the level and blocks mined boards from a player's data
+     * @param playerData The player data
+     */
+    public void updatePlayer(PlayerData playerData) {
+        UUID uuid = playerData.getUuid();
+        String playerName = playerData.getPlayerName();
+        indexes.get(Board.LEVEL).update(uuid, playerName, levelScore(playerData.getLevel(), playerData.getExperience()));
+        indexes.get(Board.BLOCKS).update(uuid, playerName, playerData.getBlocksMined());
+    }
+
+    /**
+     * Update the achievements board
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @param completed The number of completed achievements
+     */
+    public void updateAchievements(UUID uuid, String playerName, int completed) {
+        if (completed > 0) {
+            indexes.get(Board.ACHIEVEMENTS).update(uuid, playerName, completed);
+        } else {
+            indexes.get(Board.ACHIEVEMENTS).remove(uuid);
+        }
+    }
+
+    /**
+     * Get a player's rank on a board
+     * @param board The board
+     * @param uuid The player UUID
+     * @return The rank starting at 1, or 0 if the player isn't ranked
+     */
+    public int getRank(Board board, UUID uuid) {
+        return indexes.get(board).getRank(uuid);
+    }
+
+    /**
+     * Get the index behind a board
+     * @param board The board
+     * @return The index
+     */
+    public RankedIndex getIndex(Board board) {
+        return indexes.get(board);
+    }
+
+    /**
+     * Combine level and experience into one score, so higher levels rank first and
+     * experience breaks ties within a level
+     * @param level The level
+     * @param experience The experience
+     * @return The score
+     */
+    public static long levelScore(int level, int experience) {
+        return ((long) level << 32) | (Math.max(experience, 0) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,56 @@
+package org.bischofftv.veinminer.leaderboard;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The top players of every leaderboard at one point in time. Snapshots are never changed after
+ * they are published, so the GUI and placeholders can read them from any thread and always
+ * show the same rankings.
+ */
+public final class LeaderboardSnapshot {
+
+    public static final LeaderboardSnapshot EMPTY = new LeaderboardSnapshot(new EnumMap<>(LeaderboardService.Board.class), 0);
+
+    private final Map<LeaderboardService.Board, List<RankedIndex.Entry>> top;
+    private final long createdAt;
+
+    /**
+     * @param top The top players of each board, the lists must not be changed afterwards
+     * @param createdAt When the snapshot was taken
+     */
+    LeaderboardSnapshot(Map<LeaderboardService.Board, List<RankedIndex.Entry>> top, long createdAt) {
+        this.top = Collections.unmodifiableMap(top);
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Get the top players of a board
+     * @param board The board
+     * @return The players, highest first
+     */
+    public List<RankedIndex.Entry> getTop(LeaderboardService.Board board) {
+        return top.getOrDefault(board, Collections.emptyList());
+    }
+
+    /**
+     * Get the player at a position of a board
+     * @param board The board
+     * @param position The position starting at 1
+     * @return The entry, or null if the board has no player at that position
+     */
+    public RankedIndex.Entry getEntry(LeaderboardService.Board board, int position) {
+        List<RankedIndex.Entry> entries = getTop(board);
+        return position >= 1 && position <= entries.size() ? entries.get(position - 1) : null;
+    }
+
+    /**
+     * Get when the snapshot was taken
+     * @return The time in milliseconds, or 0 for the empty snapshot
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
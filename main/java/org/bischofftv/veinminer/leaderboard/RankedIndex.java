@@ -0,0 +1,344 @@
+package org.bischofftv.veinminer.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Players ordered by score, highest first, as an indexed skip list. Every forward link stores how many
+ * entries it skips, so the rank of a player and the player at a rank are found in O(log n), and an
+ * update only touches the links around the moved entry instead of sorting the whole board.
+ * Players with the same score are ordered by UUID so every entry has a stable rank.
+ * <p>
+ * All methods are synchronized, the index is updated on the main thread and read by placeholders
+ * from any thread.
+ */
+public class RankedIndex {
+
+    private static final int MAX_LEVEL = 32;
+    // Chance that a node is linked on the next level as well
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private final Node head = new Node(null, null, Long.MAX_VALUE, MAX_LEVEL);
+    private final Map<UUID, Node> nodes = new HashMap<>();
+    private int level = 1;
+
+    /**
+     * Set a player's score, adding the player if they aren't ranked yet
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @param score The score, higher ranks first
+     */
+    public synchronized void update(UUID uuid, String playerName, long score) {
+        Node node = nodes.get(uuid);
+        if (node != null) {
+            if (node.score == score) {
+                node.playerName = playerName;
+                return;
+            }
+            // The map size has to match the linked nodes while inserting
+            nodes.remove(uuid);
+            unlink(node);
+        }
+        nodes.put(uuid, insert(uuid, playerName, score));
+    }
+
+    /**
+     * Add a player only if they aren't ranked yet, e.g. when loading stored scores that may be older
+     * than the ones already in the index
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @param score The score
+     * @return True if the player was added
+     */
+    public synchronized boolean putIfAbsent(UUID uuid, String playerName, long score) {
+        if (nodes.containsKey(uuid)) {
+            return false;
+        }
+        nodes.put(uuid, insert(uuid, playerName, score));
+        return true;
+    }
+
+    /**
+     * Remove a player from the index
+     * @param uuid The player UUID
+     */
+    public synchronized void remove(UUID uuid) {
+        Node node = nodes.remove(uuid);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Remove every player that isn't in the given set, e.g. players whose stored score no longer qualifies
+     * @param uuids The players to keep
+     * @return The number of players removed
+     */
+    public synchronized int retainAll(Set<UUID> uuids) {
+        List<Node> removed = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (!uuids.contains(node.uuid)) {
+                removed.add(node);
+            }
+        }
+        for (Node node : removed) {
+            // The map size has to match the linked nodes while unlinking
+            nodes.remove(node.uuid);
+            unlink(node);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Get a player's rank
+     * @param uuid The player UUID
+     * @return The rank starting at 1, or 0 if the player isn't ranked
+     */
+    public synchronized int getRank(UUID uuid) {
+        Node target = nodes.get(uuid);
+        if (target == null) {
+            return 0;
+        }
+
+        int rank = 0;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && !isAfter(node.next[i], target.score, target.uuid)) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+            if (node == target) {
+                return rank;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Get a player's score
+     * @param uuid The player UUID
+     * @return The score, or null if the player isn't ranked
+     */
+    public synchronized Long getScore(UUID uuid) {
+        Node node = nodes.get(uuid);
+        return node != null ? node.score : null;
+    }
+
+    /**
+     * Get the entry at a rank
+     * @param rank The rank starting at 1
+     * @return The entry, or null if there is no such rank
+     */
+    public synchronized Entry getEntry(int rank) {
+        Node node = nodeAt(rank);
+        return node != null ? node.toEntry() : null;
+    }
+
+    /**
+     * Get the entry one rank above a player
+     * @param uuid The player UUID
+     * @return The entry, or null if the player is first or isn't ranked
+     */
+    public synchronized Entry getEntryAbove(UUID uuid) {
+        int rank = getRank(uuid);
+        return rank > 1 ? getEntry(rank - 1) : null;
+    }
+
+    /**
+     * Get the highest ranked entries
+     * @param limit The maximum number of entries
+     * @return The entries, highest score first
+     */
+    public synchronized List<Entry> getTop(int limit) {
+        if (limit <= 0 || nodes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Entry> entries = new ArrayList<>(Math.min(limit, nodes.size()));
+        Node node = head.next[0];
+        while (node != null && entries.size() < limit) {
+            entries.add(node.toEntry());
+            node = node.next[0];
+        }
+        return entries;
+    }
+
+    /**
+     * Get the number of ranked players
+     * @return The number of players
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Remove all players
+     */
+    public synchronized void clear() {
+        nodes.clear();
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+    }
+
+    private Node nodeAt(int rank) {
+        if (rank < 1 || rank > nodes.size()) {
+            return null;
+        }
+
+        int traversed = 0;
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && traversed + node.span[i] <= rank) {
+                traversed += node.span[i];
+                node = node.next[i];
+            }
+            if (traversed == rank) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private Node insert(UUID uuid, String playerName, long score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+
+        // Find the last node before the new entry on every level, and its rank
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (node.next[i] != null && !isAfter(node.next[i], score, uuid)) {
+                rank[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = nodes.size();
+            }
+            level = nodeLevel;
+        }
+
+        Node created = new Node(uuid, playerName, score, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            created.next[i] = update[i].next[i];
+            update[i].next[i] = created;
+
+            // Split the span of the link the new node was inserted into
+            created.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+
+        // Links above the new node now skip one more entry
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        return created;
+    }
+
+    private void unlink(Node target) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && node.next[i] != target && !isAfter(node.next[i], target.score, target.uuid)) {
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+
+        while (level > 1 && head.next[level - 1] == null) {
+            head.span[level - 1] = 0;
+            level--;
+        }
+    }
+
+    /**
+     * Check if a node ranks after the given score and UUID
+     */
+    private static boolean isAfter(Node node, long score, UUID uuid) {
+        if (node.score != score) {
+            return node.score < score;
+        }
+        return node.uuid.compareTo(uuid) > 0;
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (nodeLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+
+    /**
+     * A ranked player, as returned to callers
+     */
+    public static final class Entry {
+        private final UUID uuid;
+        private final String playerName;
+        private final long score;
+
+        private Entry(UUID uuid, String playerName, long score) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.score = score;
+        }
+
+        public UUID getUuid() {
+            return uuid;
+        }
+
+        public String getPlayerName() {
+            return playerName;
+        }
+
+        public long getScore() {
+            return score;
+        }
+    }
+
+    private static final class Node {
+        private final UUID uuid;
+        private String playerName;
+        private final long score;
+        private final Node[] next;
+        // Number of entries each forward link skips, counting its target
+        private final int[] span;
+
+        private Node(UUID uuid, String playerName, long score, int level) {
+            this.uuid = uuid;
+            this.playerName = playerName;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+
+        private Entry toEntry() {
+            return new Entry(uuid, playerName, score);
+        }
+    }
+}
@@ -6,7 +6,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.concurrent.CompletableFuture;
 
 public class PlayerJoinListener implements Listener {
 
@@ -20,32 +21,24 @@ public class PlayerJoinListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
-        // Load player data with a slight delay to ensure everything is ready
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (player.isOnline()) {
-                    if (plugin.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Loading data for player " + player.getName());
-                    }
-
-                    // Load player data
-                    plugin.getPlayerDataManager().loadPlayerData(player);
-
-                    // Load achievements if enabled
-                    if (plugin.getAchievementManager().isEnabled()) {
-                        if (plugin.isDebugMode()) {
-                            plugin.getLogger().info("[Debug] Loading achievements for player " + player.getName());
-                        }
-                        plugin.getAchievementManager().loadPlayerAchievements(player);
-                    }
-
-                    if (plugin.isDebugMode()) {
-                        plugin.getLogger().info("[Debug] Finished loading data for player " + player.getName());
-                    }
-                }
+        if (plugin.isDebugMode()) {
+            plugin.getLogger().info("[Debug] Loading data for player " + player.getName());
+        }
+
+        // Load player data on the persistence thread, it's put into memory on the main thread when ready
+        CompletableFuture<?> loaded = plugin.getPlayerDataManager().loadPlayerData(player);
+
+        // Load achievements if enabled
+        if (plugin.getAchievementManager().isEnabled()) {
+            if (plugin.isDebugMode()) {
+                plugin.getLogger().info("[Debug] Loading achievements for player " + player.getName());
             }
-        }.runTaskLater(plugin, 20L); // 1 second delay
+            loaded = CompletableFuture.allOf(loaded, plugin.getAchievementManager().loadPlayerAchievements(player));
+        }
+
+        if (plugin.isDebugMode()) {
+            loaded.thenRun(() -> plugin.getLogger().info("[Debug] Finished loading data for player " + player.getName()));
+        }
 
         // Send update notification if available
         plugin.getUpdateChecker().sendUpdateNotification(player);
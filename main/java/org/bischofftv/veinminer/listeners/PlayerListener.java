@@ -5,10 +5,13 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.concurrent.CompletableFuture;
+
 public class PlayerListener implements Listener {
 
     private final Veinminer plugin;
@@ -17,30 +20,36 @@ public class PlayerListener implements Listener {
         this.plugin = plugin;
     }
 
+    // Monitor, so logins denied by other plugins don't load anything
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+
+        // Load the profile while the player is still logging in, so joining doesn't wait for the database
+        plugin.getProfileStagingCache().preload(event.getUniqueId(), event.getName());
+    }
+
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
 
-        // Load player data with a slight delay to ensure everything is ready
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (player.isOnline()) {
-                    // Load player data
-                    plugin.getPlayerDataManager().loadPlayerData(player);
-
-                    // Load achievements if enabled
-                    if (plugin.getAchievementManager().isEnabled()) {
-                        plugin.getAchievementManager().loadPlayerAchievements(player);
-                    }
+        // Use the profile loaded during login if there is one, otherwise load it now
+        if (!plugin.getProfileStagingCache().promote(player)) {
+            // Load player data on the persistence thread, it's put into memory on the main thread when ready
+            CompletableFuture<?> loaded = plugin.getPlayerDataManager().loadPlayerData(player);
 
-                    // Debug log
-                    if (plugin.isDebugMode()) {
-                        plugin.debug("Loaded data for player " + player.getName());
-                    }
-                }
+            // Load achievements if enabled
+            if (plugin.getAchievementManager().isEnabled()) {
+                loaded = CompletableFuture.allOf(loaded, plugin.getAchievementManager().loadPlayerAchievements(player));
+            }
+
+            // Debug log
+            if (plugin.isDebugMode()) {
+                loaded.thenRun(() -> plugin.debug("Loaded data for player " + player.getName()));
             }
-        }.runTaskLater(plugin, 10L); // 0.5 second delay
+        }
 
         // Check for updates if player has permission
         if (plugin.getUpdateChecker() != null && player.hasPermission("veinminer.admin")) {
@@ -66,6 +75,9 @@ public class PlayerListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
 
+        // Stop breaking any veins the player still has queued
+        plugin.getVeinBreakQueue().cancel(player.getUniqueId());
+
         // Nur speichern, wenn save-on-quit aktiviert ist
         boolean saveOnQuit = plugin.getConfigManager().isSaveOnQuit();
         if (saveOnQuit) {
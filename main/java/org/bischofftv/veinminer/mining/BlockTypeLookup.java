@@ -0,0 +1,20 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.Material;
+
+/**
+ * Source of block types for the vein search. Implementations backed by live worlds
+ * must only be used on the server thread; snapshot-backed ones are safe to read from any thread.
+ */
+@FunctionalInterface
+public interface BlockTypeLookup {
+
+    /**
+     * Get the type of the block at a position
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The material, or null if the position is not available to this lookup
+     */
+    Material getType(int x, int y, int z);
+}
@@ -0,0 +1,86 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Thread-safe block lookup over a rectangle of chunk snapshots.
+ * Must be created on the server thread; only chunks that are already loaded are captured,
+ * and positions outside the captured chunks report null so the search treats them as a boundary.
+ */
+public final class ChunkSnapshotLookup implements BlockTypeLookup {
+
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int width;
+    private final int depth;
+    private final ChunkSnapshot[] snapshots;
+    private final int minY;
+    private final int maxY;
+
+    private ChunkSnapshotLookup(int minChunkX, int minChunkZ, int width, int depth, ChunkSnapshot[] snapshots, int minY, int maxY) {
+        this.minChunkX = minChunkX;
+        this.minChunkZ = minChunkZ;
+        this.width = width;
+        this.depth = depth;
+        this.snapshots = snapshots;
+        this.minY = minY;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Capture the loaded chunks in a range of chunk coordinates. Must be called on the server thread.
+     * @param world The world
+     * @param minChunkX The lowest chunk x coordinate, inclusive
+     * @param minChunkZ The lowest chunk z coordinate, inclusive
+     * @param maxChunkX The highest chunk x coordinate, inclusive
+     * @param maxChunkZ The highest chunk z coordinate, inclusive
+     * @return The lookup
+     */
+    public static ChunkSnapshotLookup capture(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        int width = Math.max(0, maxChunkX - minChunkX + 1);
+        int depth = Math.max(0, maxChunkZ - minChunkZ + 1);
+
+        ChunkSnapshot[] snapshots = new ChunkSnapshot[width * depth];
+        for (int dx = 0; dx < width; dx++) {
+            for (int dz = 0; dz < depth; dz++) {
+                int chunkX = minChunkX + dx;
+                int chunkZ = minChunkZ + dz;
+                // Never load or generate chunks just to search them
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    snapshots[dx * depth + dz] = world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(false, false, false);
+                }
+            }
+        }
+
+        return new ChunkSnapshotLookup(minChunkX, minChunkZ, width, depth, snapshots, world.getMinHeight(), world.getMaxHeight());
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (y < minY || y >= maxY) {
+            return null;
+        }
+
+        int dx = (x >> 4) - minChunkX;
+        int dz = (z >> 4) - minChunkZ;
+        if (dx < 0 || dz < 0 || dx >= width || dz >= depth) {
+            return null;
+        }
+
+        ChunkSnapshot snapshot = snapshots[dx * depth + dz];
+        if (snapshot == null) {
+            return null;
+        }
+        return snapshot.getBlockType(x & 15, y, z & 15);
+    }
+
+    public int getMinHeight() {
+        return minY;
+    }
+
+    public int getMaxHeight() {
+        return maxY;
+    }
+}
@@ -0,0 +1,144 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.ExperienceOrb;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the drops of a vein and merges similar items, so they can be spawned
+ * as a few full stacks or added to an inventory at once instead of one item entity per block.
+ */
+public final class DropAggregator {
+
+    // A vein rarely drops more than a handful of distinct items, so a list beats hashing ItemStacks
+    private final List<ItemStack> types = new ArrayList<>();
+    private final List<Integer> amounts = new ArrayList<>();
+    private int experience;
+
+    /**
+     * Add a drop
+     * @param drop The item stack
+     */
+    public void add(ItemStack drop) {
+        if (drop == null || drop.getAmount() <= 0 || drop.getType().isAir()) {
+            return;
+        }
+
+        for (int i = 0; i < types.size(); i++) {
+            if (types.get(i).isSimilar(drop)) {
+                amounts.set(i, amounts.get(i) + drop.getAmount());
+                return;
+            }
+        }
+
+        types.add(drop.clone());
+        amounts.add(drop.getAmount());
+    }
+
+    /**
+     * Add several drops
+     * @param drops The item stacks
+     */
+    public void addAll(Collection<ItemStack> drops) {
+        for (ItemStack drop : drops) {
+            add(drop);
+        }
+    }
+
+    /**
+     * Add experience to be dropped as a single orb
+     * @param amount The experience
+     */
+    public void addExperience(int amount) {
+        experience += amount;
+    }
+
+    public boolean isEmpty() {
+        return types.isEmpty() && experience == 0;
+    }
+
+    public int getExperience() {
+        return experience;
+    }
+
+    /**
+     * Get the collected drops as stacks of at most their maximum stack size
+     * @return The merged stacks
+     */
+    public List<ItemStack> toStacks() {
+        List<ItemStack> stacks = new ArrayList<>();
+        for (int i = 0; i < types.size(); i++) {
+            ItemStack type = types.get(i);
+            int maxStackSize = Math.max(1, type.getMaxStackSize());
+            int remaining = amounts.get(i);
+            while (remaining > 0) {
+                ItemStack stack = type.clone();
+                stack.setAmount(Math.min(remaining, maxStackSize));
+                stacks.add(stack);
+                remaining -= stack.getAmount();
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * Spawn the collected drops and experience at a location and clear the aggregator
+     * @param world The world
+     * @param location The location
+     */
+    public void spawn(World world, Location location) {
+        for (ItemStack stack : toStacks()) {
+            world.dropItem(location, stack);
+        }
+
+        if (experience > 0) {
+            ExperienceOrb orb = world.spawn(location, ExperienceOrb.class);
+            orb.setExperience(experience);
+        }
+
+        clear();
+    }
+
+    /**
+     * Give the collected drops and experience to a player with a single inventory update
+     * and clear the aggregator. Items that don't fit are dropped as merged stacks at the player's feet.
+     * @param player The player
+     */
+    public void giveTo(Player player) {
+        List<ItemStack> stacks = toStacks();
+        if (!stacks.isEmpty()) {
+            Map<Integer, ItemStack> overflow = player.getInventory().addItem(stacks.toArray(new ItemStack[0]));
+            if (!overflow.isEmpty()) {
+                // addItem returns what's left per argument, so merge again before dropping
+                DropAggregator leftovers = new DropAggregator();
+                leftovers.addAll(overflow.values());
+                Location feet = player.getLocation();
+                for (ItemStack stack : leftovers.toStacks()) {
+                    player.getWorld().dropItem(feet, stack);
+                }
+            }
+        }
+
+        if (experience > 0) {
+            player.giveExp(experience);
+        }
+
+        clear();
+    }
+
+    /**
+     * Remove all collected drops and experience
+     */
+    public void clear() {
+        types.clear();
+        amounts.clear();
+        experience = 0;
+    }
+}
@@ -0,0 +1,13 @@
+package org.bischofftv.veinminer.mining;
+
+/**
+ * How the drops of vein-mined blocks are handed out
+ */
+public enum DropMode {
+    // Every block drops its items and experience where it was broken
+    NATURAL,
+    // Drops are merged into as few stacks as possible and spawned at the mined block
+    AGGREGATED,
+    // Drops go straight into the player's inventory, overflow is dropped at their feet
+    INVENTORY
+}
@@ -0,0 +1,36 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Block lookup over a live world that never loads chunks. Positions in chunks that are
+ * not loaded report null, so the search stops at the chunk border instead of forcing a
+ * synchronous chunk load or generation. Server thread only.
+ */
+public final class LoadedChunkLookup implements BlockTypeLookup {
+
+    private final World world;
+    // The search probes neighbours, so most lookups hit the same chunk as the previous one
+    private int lastChunkX;
+    private int lastChunkZ;
+    private boolean lastLoaded;
+    private boolean hasLast;
+
+    public LoadedChunkLookup(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (!hasLast || chunkX != lastChunkX || chunkZ != lastChunkZ) {
+            lastChunkX = chunkX;
+            lastChunkZ = chunkZ;
+            lastLoaded = world.isChunkLoaded(chunkX, chunkZ);
+            hasLast = true;
+        }
+        return lastLoaded ? world.getType(x, y, z) : null;
+    }
+}
@@ -0,0 +1,127 @@
+package org.bischofftv.veinminer.mining;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of primitive longs used as the visited set of the vein search.
+ * Avoids boxing and per-entry node objects; the backing array is reused between searches.
+ */
+final class LongHashSet {
+
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    private final int initialCapacity;
+    private long[] keys;
+    private int mask;
+    private int size;
+    // 0 is used as the empty marker, so the key 0 is tracked separately
+    private boolean containsZero;
+
+    LongHashSet(int initialCapacity) {
+        this.initialCapacity = tableSizeFor(initialCapacity);
+        this.keys = new long[this.initialCapacity];
+        this.mask = this.initialCapacity - 1;
+    }
+
+    /**
+     * Add a key to the set
+     * @param key The key
+     * @return True if the key was added, false if it was already present
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        if (++size >= (keys.length >> 1)) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Check if a key is in the set
+     * @param key The key
+     * @return True if present, false otherwise
+     */
+    boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+
+        int slot = mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Remove all keys. Tables that grew very large for a single search are released
+     * so one huge vein does not pin memory for the rest of the thread's life.
+     */
+    void clear() {
+        if (keys.length > MAX_RETAINED_CAPACITY) {
+            keys = new long[initialCapacity];
+            mask = initialCapacity - 1;
+        } else if (size > 0) {
+            Arrays.fill(keys, 0L);
+        }
+        size = 0;
+        containsZero = false;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        keys = new long[newCapacity];
+        mask = newCapacity - 1;
+
+        for (long key : oldKeys) {
+            if (key == 0) {
+                continue;
+            }
+            int slot = mix(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = 16;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
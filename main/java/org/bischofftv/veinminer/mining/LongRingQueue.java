@@ -0,0 +1,60 @@
+package org.bischofftv.veinminer.mining;
+
+/**
+ * Growable FIFO ring buffer of primitive longs used as the frontier of the vein search.
+ */
+final class LongRingQueue {
+
+    private static final int MAX_RETAINED_CAPACITY = 1 << 14;
+
+    private final int initialCapacity;
+    private long[] elements;
+    private int head;
+    private int tail;
+    private int size;
+
+    LongRingQueue(int initialCapacity) {
+        this.initialCapacity = Math.max(16, Integer.highestOneBit(initialCapacity - 1) << 1);
+        this.elements = new long[this.initialCapacity];
+    }
+
+    void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[tail] = value;
+        tail = (tail + 1) & (elements.length - 1);
+        size++;
+    }
+
+    long poll() {
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return value;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        if (elements.length > MAX_RETAINED_CAPACITY) {
+            elements = new long[initialCapacity];
+        }
+        head = 0;
+        tail = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] newElements = new long[elements.length << 1];
+        // Unwrap the ring into the start of the new array
+        int firstPart = elements.length - head;
+        System.arraycopy(elements, head, newElements, 0, firstPart);
+        System.arraycopy(elements, 0, newElements, firstPart, head);
+        elements = newElements;
+        head = 0;
+        tail = size;
+    }
+}
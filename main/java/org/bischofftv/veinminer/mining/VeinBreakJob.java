@@ -0,0 +1,459 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.config.VeinMinerSettings;
+import org.bischofftv.veinminer.data.PlayerData;
+import org.bischofftv.veinminer.skills.SkillRollEngine;
+import org.bischofftv.veinminer.utils.VeinMiningUtils;
+import org.bukkit.Effect;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Registry;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Waterlogged;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.Damageable;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A discovered vein that is broken incrementally by the {@link VeinBreakQueue}.
+ * Durability, hunger, XP and achievements are applied per batch as blocks actually break,
+ * so a job that is cancelled part way only charges for what was mined.
+ */
+public final class VeinBreakJob {
+
+    // Blocks are charged and broken in small batches so the queue can check its deadline in between
+    private static final int BATCH_SIZE = 8;
+
+    private static final Enchantment UNBREAKING = Registry.ENCHANTMENT.get(NamespacedKey.minecraft("unbreaking"));
+
+    private final Veinminer plugin;
+    private final Player player;
+    private final Material toolMaterial;
+    private final VeinMinerSettings settings;
+    private final World world;
+    private final VeinSearchResult result;
+    private final List<Block> batch = new ArrayList<>(BATCH_SIZE);
+    // Null when blocks drop naturally
+    private final DropAggregator drops;
+
+    // Index 0 is the original block, which the event breaks itself
+    private int cursor = 1;
+    private boolean originCredited;
+    private boolean done;
+    private int totalBroken;
+
+    // Scheduler bookkeeping
+    private long queuedAt;
+    private boolean started;
+
+    // Running totals so rounding matches breaking the whole vein at once
+    private int durabilityBlocks;
+    private int durabilityCharged;
+    private float foodDebt;
+    private int xpCarry;
+
+    /**
+     * Create a new vein break job
+     * @param plugin The plugin instance
+     * @param player The player mining the vein
+     * @param toolMaterial The tool type the player must keep holding
+     * @param settings The settings snapshot taken when the vein was mined
+     * @param world The world of the vein
+     * @param result The discovered vein
+     */
+    public VeinBreakJob(Veinminer plugin, Player player, Material toolMaterial, VeinMinerSettings settings,
+                        World world, VeinSearchResult result) {
+        this.plugin = plugin;
+        this.player = player;
+        this.toolMaterial = toolMaterial;
+        this.settings = settings;
+        this.world = world;
+        this.result = result;
+        this.drops = settings.getDropMode() != DropMode.NATURAL ? new DropAggregator() : null;
+    }
+
+    public UUID getPlayerId() {
+        return player.getUniqueId();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    void markQueued(long nanoTime) {
+        this.queuedAt = nanoTime;
+    }
+
+    long getQueuedAt() {
+        return queuedAt;
+    }
+
+    /**
+     * Mark that the first block of this vein has been broken
+     * @return True if this is the first call, false otherwise
+     */
+    boolean markStarted() {
+        if (started) {
+            return false;
+        }
+        started = true;
+        return true;
+    }
+
+    /**
+     * Get the number of blocks that are still waiting to be broken
+     * @return The remaining blocks
+     */
+    public int getRemaining() {
+        return done ? 0 : result.size() - cursor;
+    }
+
+    /**
+     * Break blocks of this vein until it is finished or a budget runs out
+     * @param blockBudget Maximum number of blocks to break
+     * @param deadlineNanos {@link System#nanoTime()} value after which no new batch is started
+     * @return The number of blocks broken
+     */
+    int process(int blockBudget, long deadlineNanos) {
+        if (done) {
+            return 0;
+        }
+
+        // Cancel if the player left or switched tools
+        if (!player.isOnline()) {
+            finish();
+            return 0;
+        }
+
+        ItemStack tool = player.getInventory().getItemInMainHand();
+        PlayerData playerData = plugin.getPlayerDataManager().getPlayerData(player.getUniqueId());
+        if (tool.getType() != toolMaterial || playerData == null) {
+            finish();
+            return 0;
+        }
+
+        // Read the tool's meta once per call; durability is written back after the last batch
+        ItemMeta toolMeta = tool.getItemMeta();
+        Damageable damageable = getDamageable(tool, toolMeta);
+        int unbreakingLevel = damageable != null && UNBREAKING != null ? toolMeta.getEnchantLevel(UNBREAKING) : 0;
+        boolean silkTouch = drops != null && toolMeta != null && toolMeta.hasEnchant(Enchantment.SILK_TOUCH);
+        boolean toolDamaged = false;
+        boolean toolBroken = false;
+
+        int brokenNow = 0;
+        while (cursor < result.size() && brokenNow < blockBudget) {
+            // Collect the next batch, skipping blocks whose type changed (e.g., by another plugin)
+            batch.clear();
+            int limit = Math.min(BATCH_SIZE, blockBudget - brokenNow);
+            while (cursor < result.size() && batch.size() < limit) {
+                long key = result.getPosition(cursor++);
+                int x = VeinSearchEngine.unpackX(key);
+                int z = VeinSearchEngine.unpackZ(key);
+
+                // Never load a chunk that unloaded since the vein was discovered
+                if (!world.isChunkLoaded(x >> 4, z >> 4)) {
+                    plugin.getVeinMiningStats().recordUnloadedBlocksSkipped(1);
+                    continue;
+                }
+
+                Block block = world.getBlockAt(x, VeinSearchEngine.unpackY(key), z);
+                if (block.getType() == result.getMaterial()) {
+                    batch.add(block);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            // Apply durability and hunger costs
+            if (damageable != null) {
+                int durabilityLoss = getDurabilityLoss(batch.size(), playerData, unbreakingLevel);
+                if (durabilityLoss > 0) {
+                    if (!applyToolDurability(tool, damageable, durabilityLoss)) {
+                        // Tool broke
+                        toolBroken = true;
+                        cursor = result.size();
+                        break;
+                    }
+                    toolDamaged = true;
+                }
+            }
+
+            applyHungerCost(batch.size(), playerData);
+
+            // Break the blocks
+            for (Block block : batch) {
+                breakBlock(block, tool, silkTouch);
+            }
+            dropLuckBonus(batch, playerData);
+            brokenNow += batch.size();
+
+            if (System.nanoTime() >= deadlineNanos) {
+                break;
+            }
+        }
+        batch.clear();
+
+        if (toolDamaged && !toolBroken) {
+            tool.setItemMeta(toolMeta);
+        }
+
+        if (brokenNow > 0) {
+            credit(brokenNow);
+        }
+
+        if (cursor >= result.size()) {
+            finish();
+        }
+
+        return brokenNow;
+    }
+
+    /**
+     * Cancel the job, handing out anything that was already mined
+     */
+    void cancel() {
+        finish();
+    }
+
+    /**
+     * Break a block, dropping its items or collecting them depending on the drop mode
+     * @param block The block
+     * @param tool The tool used
+     * @param silkTouch Whether the tool has Silk Touch, only read when collecting drops
+     */
+    private void breakBlock(Block block, ItemStack tool, boolean silkTouch) {
+        if (drops == null) {
+            // Break the block and drop items, the server drops the ore experience itself
+            block.breakNaturally(tool);
+            return;
+        }
+
+        // Collect the drops (Fortune and Silk Touch are applied by getDrops); getDrops has no experience
+        drops.addAll(block.getDrops(tool, player));
+        if (!silkTouch) {
+            drops.addExperience(VeinMiningUtils.getOreExperience(result.getMaterial()));
+        }
+
+        // Remove the block the way breakNaturally does, keeping the water of a waterlogged block
+        world.playEffect(block.getLocation(), Effect.STEP_SOUND, result.getMaterial());
+        BlockData data = block.getBlockData();
+        boolean waterlogged = data instanceof Waterlogged && ((Waterlogged) data).isWaterlogged();
+        block.setType(waterlogged ? Material.WATER : Material.AIR);
+    }
+
+    /**
+     * Apply luck enhancement for bonus drops, rolling for the whole batch at once
+     * @param brokenBlocks The blocks broken in this batch
+     * @param playerData The player data
+     */
+    private void dropLuckBonus(List<Block> brokenBlocks, PlayerData playerData) {
+        if (!plugin.getSkillManager().isEnabled()) {
+            return;
+        }
+
+        int luckLevel = playerData.getLuckLevel();
+        double luckChance = plugin.getSkillManager().getLuckEnhancement(luckLevel);
+        int bonusItems = SkillRollEngine.successes(brokenBlocks.size(), luckChance);
+        if (bonusItems <= 0) {
+            return;
+        }
+
+        ItemStack bonus = new ItemStack(result.getMaterial(), bonusItems);
+        if (drops != null) {
+            drops.add(bonus);
+        } else {
+            // Drop the extra items as one stack where the batch ended
+            Block last = brokenBlocks.get(brokenBlocks.size() - 1);
+            world.dropItemNaturally(last.getLocation(), bonus);
+        }
+    }
+
+    /**
+     * Credit blocks to the player's stats and achievements
+     * @param blocks The number of blocks broken in this batch
+     */
+    private void credit(int blocks) {
+        // The original block is credited together with the first batch
+        int credited = blocks;
+        if (!originCredited) {
+            credited++;
+            originCredited = true;
+        }
+        totalBroken += credited;
+
+        // Carry the blocks-per-xp remainder between batches
+        int blocksPerXp = Math.max(1, plugin.getLevelManager().getBlocksPerXp());
+        xpCarry += credited;
+        int xpGained = xpCarry / blocksPerXp;
+        xpCarry %= blocksPerXp;
+        plugin.getLevelManager().addBlocksMined(player, credited, xpGained);
+
+        // Update achievements
+        if (plugin.getAchievementManager().isEnabled()) {
+            plugin.getAchievementManager().updateBlockMineAchievements(player, result.getMaterial().toString(), credited);
+        }
+    }
+
+    private void finish() {
+        if (done) {
+            return;
+        }
+        done = true;
+
+        // Hand out the collected drops: into the inventory if the player is still here,
+        // otherwise at the original block
+        if (drops != null && !drops.isEmpty() && settings.getDropMode() == DropMode.INVENTORY && player.isOnline()) {
+            drops.giveTo(player);
+        } else if (drops != null && !drops.isEmpty()) {
+            long origin = result.getPosition(0);
+            Location location = new Location(world, VeinSearchEngine.unpackX(origin) + 0.5,
+                    VeinSearchEngine.unpackY(origin) + 0.5, VeinSearchEngine.unpackZ(origin) + 0.5);
+            drops.spawn(world, location);
+        }
+
+        // Settle the hunger that was rounded down between batches
+        if (foodDebt > 0 && player.isOnline()) {
+            player.setFoodLevel(Math.max(0, player.getFoodLevel() - (int) Math.ceil(foodDebt)));
+            foodDebt = 0;
+        }
+
+        // Debug message
+        if (totalBroken > 0 && plugin.isDebugMode()) {
+            plugin.debug("Player " + player.getName() + " vein mined " + totalBroken + " blocks of " + result.getMaterial());
+        }
+    }
+
+    /**
+     * Get the tool's meta as Damageable if vein mining should wear it down
+     * @param tool The tool
+     * @param toolMeta The tool's meta
+     * @return The damageable meta, or null if durability is not used
+     */
+    private Damageable getDamageable(ItemStack tool, ItemMeta toolMeta) {
+        if (!settings.isUseDurabilityMultiplier() || !(toolMeta instanceof Damageable)) {
+            return null;
+        }
+
+        // Skip if tool has infinite durability
+        if (tool.getType().getMaxDurability() == 0 || toolMeta.isUnbreakable()) {
+            return null;
+        }
+        return (Damageable) toolMeta;
+    }
+
+    /**
+     * Calculate the durability cost of a batch after skills and Unbreaking
+     * @param blockCount Number of blocks in this batch
+     * @param playerData The player data
+     * @param unbreakingLevel The tool's Unbreaking level
+     * @return The durability to remove
+     */
+    private int getDurabilityLoss(int blockCount, PlayerData playerData, int unbreakingLevel) {
+        // Calculate durability cost from the running total so small batches don't round up each time
+        durabilityBlocks += blockCount;
+        int durabilityLoss = (int) Math.ceil(durabilityBlocks * settings.getDurabilityMultiplier()) - durabilityCharged;
+        durabilityCharged += durabilityLoss;
+
+        // Apply efficiency boost to reduce durability loss
+        if (plugin.getSkillManager().isEnabled()) {
+            int efficiencyLevel = playerData.getEfficiencyLevel();
+            double efficiencyChance = plugin.getSkillManager().getEfficiencyBoost(efficiencyLevel);
+
+            // Each block has a chance to cost nothing
+            int blocksReduced = SkillRollEngine.successes(blockCount, efficiencyChance);
+            durabilityLoss = Math.max(0, durabilityLoss - blocksReduced);
+        }
+
+        // Unbreaking: each point of damage only applies with a chance of 1 / (level + 1)
+        if (unbreakingLevel > 0) {
+            durabilityLoss = SkillRollEngine.binomial(durabilityLoss, 1.0 / (unbreakingLevel + 1));
+        }
+
+        return durabilityLoss;
+    }
+
+    /**
+     * Apply durability cost to the tool's meta. The meta is written back by the caller.
+     * @param tool The tool
+     * @param damageable The tool's meta
+     * @param durabilityLoss The durability to remove
+     * @return True if the tool survived, false if it broke
+     */
+    private boolean applyToolDurability(ItemStack tool, Damageable damageable, int durabilityLoss) {
+        int maxDurability = damageable.hasMaxDamage() ? damageable.getMaxDamage() : tool.getType().getMaxDurability();
+        int newDamage = damageable.getDamage() + durabilityLoss;
+
+        // Check if tool will break
+        if (newDamage >= maxDurability) {
+            // Tool breaks
+            player.getInventory().setItemInMainHand(null);
+            player.playSound(player.getLocation(), Sound.ENTITY_ITEM_BREAK, 1.0f, 1.0f);
+            return false;
+        }
+
+        // Apply durability
+        damageable.setDamage(newDamage);
+        return true;
+    }
+
+    /**
+     * Apply hunger cost to the player
+     * @param blockCount Number of blocks in this batch
+     * @param playerData The player data
+     */
+    private void applyHungerCost(int blockCount, PlayerData playerData) {
+        if (!settings.isUseHungerMultiplier()) {
+            return;
+        }
+
+        // Calculate hunger cost
+        double multiplier = settings.getHungerMultiplier();
+        float hungerLoss = (float) (blockCount * multiplier);
+
+        // Apply energy conservation to reduce hunger loss
+        if (plugin.getSkillManager().isEnabled()) {
+            int energyLevel = playerData.getEnergyLevel();
+            double energyChance = plugin.getSkillManager().getEnergyConservation(energyLevel);
+
+            // Each block has a chance to cost no hunger
+            int blocksReduced = SkillRollEngine.successes(blockCount, energyChance);
+
+            // Reduce hunger loss
+            hungerLoss -= (float) (blocksReduced * multiplier);
+            if (hungerLoss < 0) hungerLoss = 0;
+        }
+
+        // Get current food level
+        int foodLevel = player.getFoodLevel();
+        float saturation = player.getSaturation();
+
+        // First reduce saturation
+        if (saturation > hungerLoss) {
+            player.setSaturation(saturation - hungerLoss);
+        } else {
+            // Then reduce food level, keeping the fraction for the next batch
+            hungerLoss -= saturation;
+            player.setSaturation(0);
+
+            foodDebt += hungerLoss;
+            int foodLoss = (int) foodDebt;
+            if (foodLoss > 0) {
+                foodDebt -= foodLoss;
+                player.setFoodLevel(Math.max(0, foodLevel - foodLoss));
+            }
+        }
+    }
+}
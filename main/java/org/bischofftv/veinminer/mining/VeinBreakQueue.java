@@ -0,0 +1,246 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.config.VeinMinerSettings;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Server-wide scheduler that breaks queued veins on the server thread a few blocks at a time.
+ * The per-tick time and block budgets from config.yml are shared by all players and split
+ * between players with pending veins using deficit round-robin, so one huge vein can't
+ * starve everybody else.
+ */
+public class VeinBreakQueue {
+
+    // Share per round when there is no block budget, so players still take turns
+    private static final int UNLIMITED_QUANTUM = 64;
+
+    private final Veinminer plugin;
+    private final Map<UUID, PlayerQueue> queues = new HashMap<>();
+    // Players with pending jobs, in round-robin order
+    private final ArrayDeque<PlayerQueue> active = new ArrayDeque<>();
+    private BukkitTask task;
+    private int queuedJobs;
+
+    // Statistics
+    private long jobsSubmitted;
+    private long jobsCompleted;
+    private long blocksBroken;
+    private long waitSamples;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+    private int peakQueuedJobs;
+
+    public VeinBreakQueue(Veinminer plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start processing queued jobs every tick
+     */
+    public void start() {
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop processing and break all remaining veins immediately so no mined blocks are lost
+     */
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        for (PlayerQueue queue : active) {
+            for (VeinBreakJob job : queue.jobs) {
+                job.process(Integer.MAX_VALUE, Long.MAX_VALUE);
+            }
+        }
+        active.clear();
+        queues.clear();
+        queuedJobs = 0;
+    }
+
+    /**
+     * Queue a vein to be broken
+     * @param job The job
+     */
+    public void submit(VeinBreakJob job) {
+        PlayerQueue queue = queues.computeIfAbsent(job.getPlayerId(), PlayerQueue::new);
+        if (queue.jobs.isEmpty()) {
+            active.add(queue);
+        }
+
+        job.markQueued(System.nanoTime());
+        queue.jobs.add(job);
+        queuedJobs++;
+        jobsSubmitted++;
+        peakQueuedJobs = Math.max(peakQueuedJobs, queuedJobs);
+    }
+
+    /**
+     * Cancel all pending veins of a player
+     * @param playerId The player's UUID
+     */
+    public void cancel(UUID playerId) {
+        PlayerQueue queue = queues.remove(playerId);
+        if (queue != null) {
+            active.remove(queue);
+            queuedJobs -= queue.jobs.size();
+            for (VeinBreakJob job : queue.jobs) {
+                job.cancel();
+            }
+        }
+    }
+
+    private void tick() {
+        if (active.isEmpty()) {
+            return;
+        }
+
+        VeinMinerSettings settings = plugin.getConfigManager().getSettings();
+        int blockBudget = settings.getBreakBlocksPerTick() > 0 ? settings.getBreakBlocksPerTick() : Integer.MAX_VALUE;
+        long deadline = settings.getBreakMicrosPerTick() > 0
+                ? System.nanoTime() + settings.getBreakMicrosPerTick() * 1000L
+                : Long.MAX_VALUE;
+
+        // Every player with pending veins gets an equal share of the block budget per round
+        int quantum = blockBudget == Integer.MAX_VALUE ? UNLIMITED_QUANTUM : Math.max(1, blockBudget / active.size());
+
+        while (!active.isEmpty() && blockBudget > 0 && System.nanoTime() < deadline) {
+            PlayerQueue queue = active.poll();
+            queue.deficit += quantum;
+
+            while (queue.deficit > 0 && blockBudget > 0 && !queue.jobs.isEmpty()) {
+                VeinBreakJob job = queue.jobs.peek();
+                long startedAt = System.nanoTime();
+                int broken = job.process(Math.min(queue.deficit, blockBudget), deadline);
+
+                if (broken > 0) {
+                    blocksBroken += broken;
+                    if (job.markStarted()) {
+                        recordWait(startedAt - job.getQueuedAt());
+                    }
+                }
+
+                queue.deficit -= broken;
+                blockBudget -= broken;
+
+                if (job.isDone()) {
+                    queue.jobs.poll();
+                    queuedJobs--;
+                    jobsCompleted++;
+                } else if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+
+            if (queue.jobs.isEmpty()) {
+                queues.remove(queue.playerId);
+            } else {
+                // Don't let a player bank more than one round of credit
+                queue.deficit = Math.min(queue.deficit, quantum);
+                active.add(queue);
+            }
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        waitSamples++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    /**
+     * Get the number of queued veins
+     * @return The number of jobs
+     */
+    public int getQueuedJobs() {
+        return queuedJobs;
+    }
+
+    /**
+     * Get the number of players with queued veins
+     * @return The number of players
+     */
+    public int getActivePlayers() {
+        return active.size();
+    }
+
+    /**
+     * Get the number of blocks still waiting to be broken across all queued veins
+     * @return The number of blocks
+     */
+    public long getPendingBlocks() {
+        long pending = 0;
+        for (PlayerQueue queue : active) {
+            for (VeinBreakJob job : queue.jobs) {
+                pending += job.getRemaining();
+            }
+        }
+        return pending;
+    }
+
+    public int getPeakQueuedJobs() {
+        return peakQueuedJobs;
+    }
+
+    public long getJobsSubmitted() {
+        return jobsSubmitted;
+    }
+
+    public long getJobsCompleted() {
+        return jobsCompleted;
+    }
+
+    public long getBlocksBroken() {
+        return blocksBroken;
+    }
+
+    /**
+     * Get the average time between queueing a vein and breaking its first block
+     * @return The average wait in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        return waitSamples == 0 ? 0 : totalWaitNanos / (double) waitSamples / 1_000_000.0;
+    }
+
+    /**
+     * Get the longest time between queueing a vein and breaking its first block
+     * @return The maximum wait in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    /**
+     * Reset the statistics counters
+     */
+    public void resetStats() {
+        jobsSubmitted = 0;
+        jobsCompleted = 0;
+        blocksBroken = 0;
+        waitSamples = 0;
+        totalWaitNanos = 0;
+        maxWaitNanos = 0;
+        peakQueuedJobs = queuedJobs;
+    }
+
+    private static final class PlayerQueue {
+        private final UUID playerId;
+        private final ArrayDeque<VeinBreakJob> jobs = new ArrayDeque<>();
+        private int deficit;
+
+        private PlayerQueue(UUID playerId) {
+            this.playerId = playerId;
+        }
+    }
+}
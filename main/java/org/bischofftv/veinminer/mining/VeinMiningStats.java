@@ -0,0 +1,85 @@
+package org.bischofftv.veinminer.mining;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for vein searches. Searches may run off the server thread, so all counters are thread-safe.
+ */
+public final class VeinMiningStats {
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder chunkBorderTruncations = new LongAdder();
+    private final LongAdder unloadedBlocksSkipped = new LongAdder();
+    private final LongAdder visitedPositions = new LongAdder();
+    private final LongAdder[] stopReasons = new LongAdder[VeinSearchResult.StopReason.values().length];
+
+    public VeinMiningStats() {
+        for (int i = 0; i < stopReasons.length; i++) {
+            stopReasons[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record a finished search
+     * @param result The search result
+     */
+    public void recordSearch(VeinSearchResult result) {
+        searches.increment();
+        visitedPositions.add(result.getVisitedCount());
+        stopReasons[result.getStopReason().ordinal()].increment();
+        if (result.isTruncatedAtChunkBorder()) {
+            chunkBorderTruncations.increment();
+        }
+    }
+
+    /**
+     * Record vein blocks that were not broken because their chunk unloaded after discovery
+     * @param blocks The number of blocks skipped
+     */
+    public void recordUnloadedBlocksSkipped(int blocks) {
+        unloadedBlocksSkipped.add(blocks);
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getChunkBorderTruncations() {
+        return chunkBorderTruncations.sum();
+    }
+
+    public long getUnloadedBlocksSkipped() {
+        return unloadedBlocksSkipped.sum();
+    }
+
+    /**
+     * Get the average number of positions probed per search
+     * @return The average visited count
+     */
+    public double getAverageVisited() {
+        long count = searches.sum();
+        return count == 0 ? 0 : visitedPositions.sum() / (double) count;
+    }
+
+    /**
+     * Get the number of searches that ended for a reason
+     * @param reason The stop reason
+     * @return The number of searches
+     */
+    public long getStopCount(VeinSearchResult.StopReason reason) {
+        return stopReasons[reason.ordinal()].sum();
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset() {
+        searches.reset();
+        chunkBorderTruncations.reset();
+        unloadedBlocksSkipped.reset();
+        visitedPositions.reset();
+        for (LongAdder counter : stopReasons) {
+            counter.reset();
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Iterative breadth-first search for connected blocks of the same material.
+ * Positions are handled as packed longs so no Block objects are created while
+ * probing neighbours; the visited set, frontier and result buffers are reused
+ * per thread. Obtain an instance with {@link #get()}.
+ */
+public final class VeinSearchEngine {
+
+    private static final ThreadLocal<VeinSearchEngine> LOCAL = ThreadLocal.withInitial(VeinSearchEngine::new);
+
+    // Neighbour offsets in the same order the old recursive search visited them
+    private static final int[][] DIRECT_OFFSETS = buildOffsets(false);
+    private static final int[][] HYBRID_OFFSETS = buildOffsets(true);
+
+    private static final int MAX_RETAINED_FOUND = 1 << 14;
+
+    private final LongHashSet visited = new LongHashSet(256);
+    private final LongRingQueue queue = new LongRingQueue(256);
+    private long[] found = new long[64];
+    private int foundCount;
+
+    private VeinSearchEngine() {
+    }
+
+    /**
+     * Get the search engine for the current thread
+     * @return The thread-local search engine
+     */
+    public static VeinSearchEngine get() {
+        return LOCAL.get();
+    }
+
+    /**
+     * Find blocks connected to the origin that have the given material. Chunks that
+     * are not loaded are treated as a boundary and are never loaded by the search.
+     * @param world The world to search in
+     * @param x The origin x coordinate
+     * @param y The origin y coordinate
+     * @param z The origin z coordinate
+     * @param material The material to match
+     * @param diagonal True to also follow diagonal connections (hybrid mode)
+     * @param maxBlocks Maximum number of blocks to find, including the origin
+     * @return The search result, with the origin at index 0
+     */
+    public VeinSearchResult search(World world, int x, int y, int z, Material material, boolean diagonal, int maxBlocks) {
+        return search(world, x, y, z, material, diagonal, VeinSearchLimits.ofMaxBlocks(maxBlocks));
+    }
+
+    /**
+     * Find blocks connected to the origin that have the given material. Chunks that
+     * are not loaded are treated as a boundary and are never loaded by the search.
+     * @param world The world to search in
+     * @param x The origin x coordinate
+     * @param y The origin y coordinate
+     * @param z The origin z coordinate
+     * @param material The material to match
+     * @param diagonal True to also follow diagonal connections (hybrid mode)
+     * @param limits The limits for this search
+     * @return The search result, with the origin at index 0
+     */
+    public VeinSearchResult search(World world, int x, int y, int z, Material material, boolean diagonal, VeinSearchLimits limits) {
+        return search(new LoadedChunkLookup(world), world.getMinHeight(), world.getMaxHeight(), x, y, z, material, diagonal, limits);
+    }
+
+    /**
+     * Find blocks connected to the origin that have the given material, reading block types
+     * from a lookup. With a snapshot-backed lookup this is safe to call off the server thread.
+     * @param lookup The block type source
+     * @param minY The minimum build height (inclusive)
+     * @param maxY The maximum build height (exclusive)
+     * @param x The origin x coordinate
+     * @param y The origin y coordinate
+     * @param z The origin z coordinate
+     * @param material The material to match
+     * @param diagonal True to also follow diagonal connections (hybrid mode)
+     * @param limits The limits for this search
+     * @return The search result, with the origin at index 0
+     */
+    public VeinSearchResult search(BlockTypeLookup lookup, int minY, int maxY, int x, int y, int z,
+                                   Material material, boolean diagonal, VeinSearchLimits limits) {
+        reset();
+
+        int[][] offsets = diagonal ? HYBRID_OFFSETS : DIRECT_OFFSETS;
+        int maxBlocks = limits.getMaxBlocks();
+        int maxVisited = limits.getMaxVisited();
+        int maxRadius = limits.getMaxRadius();
+        int maxBoundingBox = limits.getMaxBoundingBox();
+
+        boolean truncatedAtChunkBorder = false;
+        boolean hitRadius = false;
+        boolean hitBoundingBox = false;
+        boolean hitVisited = false;
+
+        // Bounding box of the blocks found so far
+        int minX = x, maxX = x, minFoundY = y, maxFoundY = y, minZ = z, maxZ = z;
+
+        long origin = pack(x, y, z);
+        visited.add(origin);
+        addFound(origin);
+        queue.add(origin);
+
+        search:
+        while (!queue.isEmpty() && foundCount < maxBlocks) {
+            long current = queue.poll();
+            int cx = unpackX(current);
+            int cy = unpackY(current);
+            int cz = unpackZ(current);
+
+            for (int[] offset : offsets) {
+                int ny = cy + offset[1];
+                if (ny < minY || ny >= maxY) {
+                    continue;
+                }
+
+                int nx = cx + offset[0];
+                int nz = cz + offset[2];
+
+                // Positions outside the radius are never probed
+                if (Math.abs(nx - x) > maxRadius || Math.abs(ny - y) > maxRadius || Math.abs(nz - z) > maxRadius) {
+                    hitRadius = true;
+                    continue;
+                }
+
+                long key = pack(nx, ny, nz);
+
+                // Skip if already checked
+                if (visited.contains(key)) {
+                    continue;
+                }
+                if (visited.size() >= maxVisited) {
+                    hitVisited = true;
+                    break search;
+                }
+                visited.add(key);
+
+                Material type = lookup.getType(nx, ny, nz);
+                if (type == null) {
+                    // Chunk not available; the vein may continue past this border
+                    truncatedAtChunkBorder = true;
+                    continue;
+                }
+                if (type != material) {
+                    continue;
+                }
+
+                // The bounding box only grows, so a block that doesn't fit now never will
+                if (Math.max(maxX, nx) - Math.min(minX, nx) >= maxBoundingBox
+                        || Math.max(maxFoundY, ny) - Math.min(minFoundY, ny) >= maxBoundingBox
+                        || Math.max(maxZ, nz) - Math.min(minZ, nz) >= maxBoundingBox) {
+                    hitBoundingBox = true;
+                    continue;
+                }
+                minX = Math.min(minX, nx);
+                maxX = Math.max(maxX, nx);
+                minFoundY = Math.min(minFoundY, ny);
+                maxFoundY = Math.max(maxFoundY, ny);
+                minZ = Math.min(minZ, nz);
+                maxZ = Math.max(maxZ, nz);
+
+                addFound(key);
+                queue.add(key);
+
+                if (foundCount >= maxBlocks) {
+                    break search;
+                }
+            }
+        }
+
+        // Report the limit that actually ended or shaped the search
+        VeinSearchResult.StopReason stopReason;
+        if (foundCount >= maxBlocks) {
+            stopReason = VeinSearchResult.StopReason.MAX_BLOCKS;
+        } else if (hitVisited) {
+            stopReason = VeinSearchResult.StopReason.MAX_VISITED;
+        } else if (hitBoundingBox) {
+            stopReason = VeinSearchResult.StopReason.MAX_BOUNDING_BOX;
+        } else if (hitRadius) {
+            stopReason = VeinSearchResult.StopReason.MAX_RADIUS;
+        } else if (truncatedAtChunkBorder) {
+            stopReason = VeinSearchResult.StopReason.CHUNK_BORDER;
+        } else {
+            stopReason = VeinSearchResult.StopReason.COMPLETE;
+        }
+
+        long[] positions = new long[foundCount];
+        System.arraycopy(found, 0, positions, 0, foundCount);
+        return new VeinSearchResult(material, positions, truncatedAtChunkBorder, stopReason, visited.size());
+    }
+
+    private void reset() {
+        visited.clear();
+        queue.clear();
+        if (found.length > MAX_RETAINED_FOUND) {
+            found = new long[64];
+        }
+        foundCount = 0;
+    }
+
+    private void addFound(long key) {
+        if (foundCount == found.length) {
+            long[] newFound = new long[found.length << 1];
+            System.arraycopy(found, 0, newFound, 0, foundCount);
+            found = newFound;
+        }
+        found[foundCount++] = key;
+    }
+
+    /**
+     * Pack block coordinates into a single long (26 bits x, 26 bits z, 12 bits y)
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The packed position
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    public static int unpackY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    public static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    private static int[][] buildOffsets(boolean diagonal) {
+        int[][] offsets = new int[diagonal ? 26 : 6][];
+        int index = 0;
+        for (int x = -1; x <= 1; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    int distance = Math.abs(x) + Math.abs(y) + Math.abs(z);
+                    // Skip the center block, and diagonals unless hybrid mode is used
+                    if (distance == 0 || (!diagonal && distance != 1)) {
+                        continue;
+                    }
+                    offsets[index++] = new int[]{x, y, z};
+                }
+            }
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,66 @@
+package org.bischofftv.veinminer.mining;
+
+/**
+ * Limits that bound the cost of a single vein search. A value of 0 or less disables a limit,
+ * except for the block limit which is always enforced.
+ */
+public final class VeinSearchLimits {
+
+    private final int maxBlocks;
+    private final int maxVisited;
+    private final int maxRadius;
+    private final int maxBoundingBox;
+
+    /**
+     * Create search limits
+     * @param maxBlocks Maximum number of blocks to find, including the origin
+     * @param maxVisited Maximum number of positions to probe
+     * @param maxRadius Maximum distance from the origin along any axis
+     * @param maxBoundingBox Maximum size of the found blocks along any axis
+     */
+    public VeinSearchLimits(int maxBlocks, int maxVisited, int maxRadius, int maxBoundingBox) {
+        this.maxBlocks = Math.max(1, maxBlocks);
+        this.maxVisited = maxVisited > 0 ? maxVisited : Integer.MAX_VALUE;
+        this.maxRadius = maxRadius > 0 ? maxRadius : Integer.MAX_VALUE;
+        this.maxBoundingBox = maxBoundingBox > 0 ? maxBoundingBox : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Create limits that only cap the number of blocks found
+     * @param maxBlocks Maximum number of blocks to find, including the origin
+     * @return The limits
+     */
+    public static VeinSearchLimits ofMaxBlocks(int maxBlocks) {
+        return new VeinSearchLimits(maxBlocks, 0, 0, 0);
+    }
+
+    public int getMaxBlocks() {
+        return maxBlocks;
+    }
+
+    public int getMaxVisited() {
+        return maxVisited;
+    }
+
+    public int getMaxRadius() {
+        return maxRadius;
+    }
+
+    public int getMaxBoundingBox() {
+        return maxBoundingBox;
+    }
+
+    /**
+     * Get the furthest distance from the origin, along any axis, that a search can reach.
+     * Every step moves at most one block per axis, so a vein can't reach further than its block limit.
+     * @return The reach in blocks
+     */
+    public int getReach() {
+        int reach = maxBlocks - 1;
+        reach = Math.min(reach, maxRadius);
+        if (maxBoundingBox != Integer.MAX_VALUE) {
+            reach = Math.min(reach, maxBoundingBox - 1);
+        }
+        return Math.max(0, reach);
+    }
+}
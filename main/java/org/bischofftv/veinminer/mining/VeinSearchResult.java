@@ -0,0 +1,113 @@
+package org.bischofftv.veinminer.mining;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable result of a vein search. Positions are stored as packed coordinates
+ * (see {@link VeinSearchEngine#pack(int, int, int)}) in breadth-first order,
+ * with the origin block at index 0.
+ */
+public final class VeinSearchResult {
+
+    /**
+     * Why a search ended, in order of precedence when several apply
+     */
+    public enum StopReason {
+        // The whole vein was found
+        COMPLETE,
+        // The block limit for the player's level was reached
+        MAX_BLOCKS,
+        // The visited-node budget ran out
+        MAX_VISITED,
+        // Matching blocks were left out to stay inside the bounding box
+        MAX_BOUNDING_BOX,
+        // The search reached the maximum radius
+        MAX_RADIUS,
+        // The search reached a chunk it could not read
+        CHUNK_BORDER
+    }
+
+    private final Material material;
+    private final long[] positions;
+    private final boolean truncatedAtChunkBorder;
+    private final StopReason stopReason;
+    private final int visitedCount;
+
+    VeinSearchResult(Material material, long[] positions, boolean truncatedAtChunkBorder, StopReason stopReason, int visitedCount) {
+        this.material = material;
+        this.positions = positions;
+        this.truncatedAtChunkBorder = truncatedAtChunkBorder;
+        this.stopReason = stopReason;
+        this.visitedCount = visitedCount;
+    }
+
+    /**
+     * Get the material that was searched for
+     * @return The material
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Get the number of blocks found, including the origin
+     * @return The number of blocks
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Check if the search reached a chunk it could not read (not loaded or not captured)
+     * @return True if the vein may continue past a chunk border
+     */
+    public boolean isTruncatedAtChunkBorder() {
+        return truncatedAtChunkBorder;
+    }
+
+    /**
+     * Get the reason the search ended
+     * @return The stop reason
+     */
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    /**
+     * Get the number of positions the search probed, including the origin
+     * @return The number of visited positions
+     */
+    public int getVisitedCount() {
+        return visitedCount;
+    }
+
+    /**
+     * Get the packed position at an index
+     * @param index The index
+     * @return The packed position
+     */
+    public long getPosition(int index) {
+        return positions[index];
+    }
+
+    /**
+     * Resolve the found positions to blocks
+     * @param world The world the search ran in
+     * @param includeOrigin Whether to include the origin block
+     * @return The blocks in breadth-first order
+     */
+    public List<Block> toBlocks(World world, boolean includeOrigin) {
+        int start = includeOrigin ? 0 : 1;
+        List<Block> blocks = new ArrayList<>(Math.max(0, positions.length - start));
+        for (int i = start; i < positions.length; i++) {
+            long key = positions[i];
+            blocks.add(world.getBlockAt(VeinSearchEngine.unpackX(key), VeinSearchEngine.unpackY(key), VeinSearchEngine.unpackZ(key)));
+        }
+        return blocks;
+    }
+}
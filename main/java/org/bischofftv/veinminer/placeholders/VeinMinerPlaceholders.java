@@ -2,17 +2,12 @@ package org.bischofftv.veinminer.placeholders;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.leaderboard.LeaderboardService;
+import org.bischofftv.veinminer.leaderboard.RankedIndex;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -21,14 +16,9 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
 
     private final Veinminer plugin;
 
-    // Cache for top players to avoid frequent database queries
-    private Map<String, List<TopPlayerData>> topPlayersCache = new HashMap<>();
-    private long lastCacheUpdate = 0;
-    private static final long CACHE_DURATION = 5 * 60 * 1000; // 5 minutes in milliseconds
-
     // Cache for placeholder results to avoid excessive logging and database queries
     private Map<String, String> placeholderResultCache = new ConcurrentHashMap<>();
-    private long lastPlaceholderCacheUpdate = 0;
+    private volatile long lastPlaceholderCacheUpdate = 0;
     private static final long PLACEHOLDER_CACHE_DURATION = 30 * 1000; // 30 seconds
 
     public VeinMinerPlaceholders(Veinminer plugin) {
@@ -64,6 +54,15 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
 
     @Override
     public String onRequest(OfflinePlayer player, String identifier) {
+        // Ranks come from the in-memory leaderboards in O(log n), so they are never cached or queried
+        if (player != null && (identifier.startsWith("rank_") || identifier.startsWith("next_rank_"))) {
+            return getRankPlaceholder(player.getUniqueId(), identifier);
+        }
+        // Top players are read from the snapshot shared with the GUI, so both show the same players
+        if (identifier.startsWith("top_")) {
+            return getTopPlaceholder(identifier);
+        }
+
         // Check if we have this placeholder in cache
         String cacheKey = (player != null ? player.getUniqueId().toString() : "null") + ":" + identifier;
 
@@ -78,11 +77,6 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
             plugin.debug("PlaceholderAPI request: " + identifier + " for player: " + (player != null ? player.getName() : "null"));
         }
 
-        // Check if cache needs to be refreshed
-        if (System.currentTimeMillis() - lastCacheUpdate > CACHE_DURATION) {
-            refreshCache();
-        }
-
         String result = null;
 
         // Player-specific placeholders
@@ -162,66 +156,6 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
             }
         }
 
-        // Top players by level
-        if (identifier.startsWith("top_level_")) {
-            try {
-                int position = Integer.parseInt(identifier.substring("top_level_".length()));
-                if (position < 1 || position > 10) {
-                    result = "Invalid position";
-                } else {
-                    List<TopPlayerData> topLevelPlayers = topPlayersCache.getOrDefault("level", new ArrayList<>());
-                    if (position <= topLevelPlayers.size()) {
-                        TopPlayerData playerData = topLevelPlayers.get(position - 1);
-                        result = playerData.getPlayerName() + ": " + playerData.getValue();
-                    } else {
-                        result = "N/A";
-                    }
-                }
-            } catch (NumberFormatException e) {
-                result = "Invalid format";
-            }
-        }
-
-        // Top players by achievements
-        else if (identifier.startsWith("top_achievements_")) {
-            try {
-                int position = Integer.parseInt(identifier.substring("top_achievements_".length()));
-                if (position < 1 || position > 10) {
-                    result = "Invalid position";
-                } else {
-                    List<TopPlayerData> topAchievementPlayers = topPlayersCache.getOrDefault("achievements", new ArrayList<>());
-                    if (position <= topAchievementPlayers.size()) {
-                        TopPlayerData playerData = topAchievementPlayers.get(position - 1);
-                        result = playerData.getPlayerName() + ": " + playerData.getValue();
-                    } else {
-                        result = "N/A";
-                    }
-                }
-            } catch (NumberFormatException e) {
-                result = "Invalid format";
-            }
-        }
-
-        // Top players by blocks mined
-        else if (identifier.startsWith("top_blocks_")) {
-            try {
-                int position = Integer.parseInt(identifier.substring("top_blocks_".length()));
-                if (position < 1 || position > 10) {
-                    result = "Invalid position";
-                } else {
-                    List<TopPlayerData> topBlocksPlayers = topPlayersCache.getOrDefault("blocks", new ArrayList<>());
-                    if (position <= topBlocksPlayers.size()) {
-                        TopPlayerData playerData = topBlocksPlayers.get(position - 1);
-                        result = playerData.getPlayerName() + ": " + playerData.getValue();
-                    } else {
-                        result = "N/A";
-                    }
-                }
-            } catch (NumberFormatException e) {
-                result = "Invalid format";
-            }
-        }
-
         // Cache the result
         if (result != null) {
             placeholderResultCache.put(cacheKey, result);
@@ -231,162 +165,110 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
     }
 
     /**
-     * Refresh the cache of top players
+     * Clear the cached placeholder results
      */
     public void refreshCache() {
-        plugin.debug("Refreshing PlaceholderAPI cache...");
-
-        if (plugin.getDatabaseManager() == null || !plugin.getDatabaseManager().checkConnection()) {
-            plugin.debug("Cannot refresh cache: Database connection is not available");
-            return;
-        }
-
-        // Clear existing cache
-        topPlayersCache.clear();
-
-        // Get top players by level
-        topPlayersCache.put("level", getTopPlayersByLevel(10));
-
-        // Get top players by achievements
-        topPlayersCache.put("achievements", getTopPlayersByAchievements(10));
-
-        // Get top players by blocks mined
-        topPlayersCache.put("blocks", getTopPlayersByBlocksMined(10));
-
-        // Update cache timestamp
-        lastCacheUpdate = System.currentTimeMillis();
-
-        // Also update placeholder cache timestamp
-        lastPlaceholderCacheUpdate = System.currentTimeMillis();
-        // Clear placeholder cache
         placeholderResultCache.clear();
-
+        lastPlaceholderCacheUpdate = System.currentTimeMillis();
         plugin.debug("PlaceholderAPI cache refreshed successfully");
     }
 
     /**
-     * Get top players by level
-     * @param limit The maximum number of players to return
-     * @return A list of top players by level
+     * Answer a top player placeholder (top_level_N, top_blocks_N, top_achievements_N) from the leaderboard snapshot.
+     * A stale snapshot is rebuilt in the background.
+     * @param identifier The placeholder identifier
+     * @return The value, or null if the identifier is unknown
      */
-    private List<TopPlayerData> getTopPlayersByLevel(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-        
-        try {
-            topPlayers = plugin.getDatabaseManager().executeInTransaction(connection -> {
-                List<TopPlayerData> result = new ArrayList<>();
-                PreparedStatement statement = null;
-                ResultSet resultSet = null;
-                
-                try {
-                    String sql = "SELECT player_name, level FROM " + plugin.getDatabaseManager().getTablePrefix() +
-                            "player_data ORDER BY level DESC, experience DESC LIMIT ?";
-                    statement = connection.prepareStatement(sql);
-                    statement.setInt(1, limit);
-
-                    resultSet = statement.executeQuery();
-                    while (resultSet.next()) {
-                        String playerName = resultSet.getString("player_name");
-                        int level = resultSet.getInt("level");
-                        result.add(new TopPlayerData(playerName, level));
-                    }
-                } finally {
-                    if (resultSet != null) resultSet.close();
-                    if (statement != null) statement.close();
-                }
-                
-                return result;
-            });
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by level: " + e.getMessage());
+    private String getTopPlaceholder(String identifier) {
+        LeaderboardService.Board board;
+        String position;
+        if (identifier.startsWith("top_level_")) {
+            board = LeaderboardService.Board.LEVEL;
+            position = identifier.substring("top_level_".length());
+        } else if (identifier.startsWith("top_achievements_")) {
+            board = LeaderboardService.Board.ACHIEVEMENTS;
+            position = identifier.substring("top_achievements_".length());
+        } else if (identifier.startsWith("top_blocks_")) {
+            board = LeaderboardService.Board.BLOCKS;
+            position = identifier.substring("top_blocks_".length());
+        } else {
+            return null;
         }
 
-        return topPlayers;
+        LeaderboardService leaderboards = plugin.getLeaderboardService();
+        try {
+            int rank = Integer.parseInt(position);
+            if (rank < 1 || rank > leaderboards.getSize()) {
+                return "Invalid position";
+            }
+            RankedIndex.Entry entry = leaderboards.getSnapshot().getEntry(board, rank);
+            return entry != null ? entry.getPlayerName() + ": " + board.getDisplayValue(entry.getScore()) : "N/A";
+        } catch (NumberFormatException e) {
+            return "Invalid format";
+        }
     }
 
     /**
-     * Get top players by achievements completed
-     * @param limit The maximum number of players to return
-     * @return A list of top players by achievements completed
+     * Answer a rank placeholder from the in-memory leaderboards
+     * <ul>
+     *     <li>rank_level, rank_blocks, rank_achievements: the player's rank</li>
+     *     <li>next_rank_level: the experience needed to pass the player one rank above</li>
+     *     <li>next_rank_blocks, next_rank_achievements: the blocks or achievements needed to pass them</li>
+     * </ul>
+     * @param uuid The player UUID
+     * @param identifier The placeholder identifier
+     * @return The value, or null if the identifier is unknown
      */
-    private List<TopPlayerData> getTopPlayersByAchievements(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-        
-        try {
-            topPlayers = plugin.getDatabaseManager().executeInTransaction(connection -> {
-                List<TopPlayerData> result = new ArrayList<>();
-                PreparedStatement statement = null;
-                ResultSet resultSet = null;
-                
-                try {
-                    String sql = "SELECT a.uuid, p.player_name, COUNT(*) as completed_count " +
-                            "FROM " + plugin.getDatabaseManager().getTablePrefix() + "achievements a " +
-                            "JOIN " + plugin.getDatabaseManager().getTablePrefix() + "player_data p ON a.uuid = p.uuid " +
-                            "WHERE a.completed = 1 " +
-                            "GROUP BY a.uuid, p.player_name " +
-                            "ORDER BY completed_count DESC LIMIT ?";
-
-                    statement = connection.prepareStatement(sql);
-                    statement.setInt(1, limit);
-
-                    resultSet = statement.executeQuery();
-                    while (resultSet.next()) {
-                        String playerName = resultSet.getString("player_name");
-                        int completedCount = resultSet.getInt("completed_count");
-                        result.add(new TopPlayerData(playerName, completedCount));
-                    }
-                } finally {
-                    if (resultSet != null) resultSet.close();
-                    if (statement != null) statement.close();
-                }
-                
-                return result;
-            });
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by achievements: " + e.getMessage());
+    private String getRankPlaceholder(UUID uuid, String identifier) {
+        boolean next = identifier.startsWith("next_rank_");
+        String boardName = identifier.substring(next ? "next_rank_".length() : "rank_".length());
+
+        LeaderboardService.Board board;
+        switch (boardName) {
+            case "level":
+                board = LeaderboardService.Board.LEVEL;
+                break;
+            case "blocks":
+                board = LeaderboardService.Board.BLOCKS;
+                break;
+            case "achievements":
+                board = LeaderboardService.Board.ACHIEVEMENTS;
+                break;
+            default:
+                return null;
         }
 
-        return topPlayers;
-    }
+        boolean enabled = board == LeaderboardService.Board.ACHIEVEMENTS
+                ? plugin.getAchievementManager().isEnabled()
+                : plugin.getLevelManager().isEnabled();
+        if (!enabled) {
+            return "Disabled";
+        }
 
-    /**
-     * Get top players by blocks mined
-     * @param limit The maximum number of players to return
-     * @return A list of top players by blocks mined
-     */
-    private List<TopPlayerData> getTopPlayersByBlocksMined(int limit) {
-        List<TopPlayerData> topPlayers = new ArrayList<>();
-        
-        try {
-            topPlayers = plugin.getDatabaseManager().executeInTransaction(connection -> {
-                List<TopPlayerData> result = new ArrayList<>();
-                PreparedStatement statement = null;
-                ResultSet resultSet = null;
-                
-                try {
-                    String sql = "SELECT player_name, blocks_mined FROM " + plugin.getDatabaseManager().getTablePrefix() +
-                            "player_data ORDER BY blocks_mined DESC LIMIT ?";
-                    statement = connection.prepareStatement(sql);
-                    statement.setInt(1, limit);
-
-                    resultSet = statement.executeQuery();
-                    while (resultSet.next()) {
-                        String playerName = resultSet.getString("player_name");
-                        int blocksMined = resultSet.getInt("blocks_mined");
-                        result.add(new TopPlayerData(playerName, blocksMined));
-                    }
-                } finally {
-                    if (resultSet != null) resultSet.close();
-                    if (statement != null) statement.close();
-                }
-                
-                return result;
-            });
-        } catch (SQLException e) {
-            plugin.getLogger().warning("Failed to get top players by blocks mined: " + e.getMessage());
+        RankedIndex index = plugin.getLeaderboardService().getIndex(board);
+        if (!next) {
+            int rank = index.getRank(uuid);
+            return rank > 0 ? String.valueOf(rank) : "N/A";
+        }
+
+        Long score = index.getScore(uuid);
+        if (score == null) {
+            return "N/A";
+        }
+        RankedIndex.Entry above = index.getEntryAbove(uuid);
+        if (above == null) {
+            // Already first
+            return "0";
         }
 
-        return topPlayers;
+        long needed;
+        if (board == LeaderboardService.Board.LEVEL) {
+            // Experience is the total earned, so it decides the order together with the level
+            needed = (above.getScore() & 0xFFFFFFFFL) - (score & 0xFFFFFFFFL) + 1;
+        } else {
+            needed = above.getScore() - score + 1;
+        }
+        return String.valueOf(Math.max(needed, 1));
     }
 
     /**
@@ -395,25 +277,4 @@ public class VeinMinerPlaceholders extends PlaceholderExpansion {
     public void forceRefreshCache() {
         refreshCache();
     }
-
-    /**
-     * Class to store top player data
-     */
-    private static class TopPlayerData {
-        private final String playerName;
-        private final int value;
-
-        public TopPlayerData(String playerName, int value) {
-            this.playerName = playerName;
-            this.value = value;
-        }
-
-        public String getPlayerName() {
-            return playerName;
-        }
-
-        public int getValue() {
-            return value;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package org.bischofftv.veinminer.skills;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Rolls skill and enchantment chances for many blocks at once. Instead of rolling once per
+ * block, the number of successes is sampled from a binomial distribution, which takes
+ * constant expected time regardless of the number of blocks.
+ */
+public final class SkillRollEngine {
+
+    // Below this mean the exact inversion method is cheap; above it the normal approximation is accurate
+    private static final double INVERSION_MEAN_LIMIT = 10.0;
+
+    private SkillRollEngine() {
+    }
+
+    /**
+     * Count how many of several independent rolls succeed
+     * @param trials The number of rolls
+     * @param chancePercent The chance of success of each roll in percent
+     * @return The number of successful rolls
+     */
+    public static int successes(int trials, double chancePercent) {
+        return binomial(trials, chancePercent / 100.0);
+    }
+
+    /**
+     * Sample from a binomial distribution
+     * @param n The number of trials
+     * @param p The probability of success of each trial
+     * @return The number of successes, between 0 and n
+     */
+    public static int binomial(int n, double p) {
+        if (n <= 0 || p <= 0) {
+            return 0;
+        }
+        if (p >= 1) {
+            return n;
+        }
+
+        // Sample the rarer outcome so the mean stays small
+        if (p > 0.5) {
+            return n - binomial(n, 1 - p);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double mean = n * p;
+
+        if (mean < INVERSION_MEAN_LIMIT) {
+            // Inversion: walk the cumulative distribution from 0, expected mean + 1 steps
+            double q = 1 - p;
+            double s = p / q;
+            double a = (n + 1) * s;
+            double r = Math.pow(q, n);
+            double u = random.nextDouble();
+            int x = 0;
+            while (u > r && x < n) {
+                u -= r;
+                x++;
+                r *= a / x - s;
+            }
+            return x;
+        }
+
+        // Normal approximation with continuity correction
+        double deviation = Math.sqrt(mean * (1 - p));
+        long x = Math.round(mean + deviation * random.nextGaussian());
+        return (int) Math.max(0, Math.min(n, x));
+    }
+}
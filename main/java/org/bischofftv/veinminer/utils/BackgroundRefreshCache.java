@@ -0,0 +1,98 @@
+package org.bischofftv.veinminer.utils;
+
+import org.bischofftv.veinminer.Veinminer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A value that is only ever loaded in the background. Readers always get the last loaded snapshot
+ * right away, even when it is stale, and a stale read starts a refresh. Only one refresh runs at a
+ * time, and the new snapshot replaces the old one atomically once it is complete.
+ * @param <T> The type of the cached value, which should not be changed after it is published
+ */
+public class BackgroundRefreshCache<T> {
+
+    private final Veinminer plugin;
+    private final String name;
+    private final long maxAgeMillis;
+    private final Supplier<T> loader;
+    private final AtomicReference<Snapshot<T>> snapshot;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * @param plugin The plugin
+     * @param name The name used in log messages
+     * @param maxAgeMillis How old the value may get before a read starts a refresh
+     * @param loader Loads the value, runs on an async thread. Returning null keeps the old value.
+     * @param initial The value until the first load finishes
+     */
+    public BackgroundRefreshCache(Veinminer plugin, String name, long maxAgeMillis, Supplier<T> loader, T initial) {
+        this.plugin = plugin;
+        this.name = name;
+        this.maxAgeMillis = maxAgeMillis;
+        this.loader = loader;
+        // Loaded at 0, so the first read refreshes it
+        this.snapshot = new AtomicReference<>(new Snapshot<>(initial, 0));
+    }
+
+    /**
+     * Get the last loaded value without blocking, and start a refresh if it is stale
+     * @return The value
+     */
+    public T get() {
+        Snapshot<T> current = snapshot.get();
+        if (System.currentTimeMillis() - current.loadedAt > maxAgeMillis) {
+            refresh();
+        }
+        return current.value;
+    }
+
+    /**
+     * Start loading a new value in the background, unless a load is already running
+     */
+    public void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, this::load);
+        } catch (RuntimeException e) {
+            // The scheduler rejects tasks while the plugin is disabled
+            refreshing.set(false);
+        }
+    }
+
+    private void load() {
+        try {
+            T value = loader.get();
+            if (value != null) {
+                snapshot.set(new Snapshot<>(value, System.currentTimeMillis()));
+            }
+        } catch (RuntimeException e) {
+            plugin.getLogger().warning("Failed to refresh " + name + ", keeping the previous values: " + e.getMessage());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * Get how long ago the current value was loaded
+     * @return The age in milliseconds
+     */
+    public long getAgeMillis() {
+        return System.currentTimeMillis() - snapshot.get().loadedAt;
+    }
+
+    private static final class Snapshot<T> {
+        private final T value;
+        private final long loadedAt;
+
+        private Snapshot(T value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
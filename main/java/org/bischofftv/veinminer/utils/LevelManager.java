@@ -21,7 +21,6 @@ public class LevelManager {
     private boolean enabled;
     private int blocksPerXp;
     private Map<Integer, Integer> xpPerLevel;
-    private Map<Integer, Integer> maxBlocksPerLevel;
 
     // Level up effects
     private boolean effectsEnabled;
@@ -74,20 +73,7 @@ public class LevelManager {
             }
         }
 
-        // Load max blocks per level
-        maxBlocksPerLevel = new HashMap<>();
-        ConfigurationSection blocksSection = plugin.getConfig().getConfigurationSection("level-system.max-blocks-per-level");
-        if (blocksSection != null) {
-            for (String key : blocksSection.getKeys(false)) {
-                try {
-                    int level = Integer.parseInt(key);
-                    int blocks = blocksSection.getInt(key);
-                    maxBlocksPerLevel.put(level, blocks);
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("Invalid level in max-blocks-per-level: " + key);
-                }
-            }
-        }
+        // Max blocks per level are compiled into the ConfigManager settings snapshot
 
         // Load level up effects
         ConfigurationSection effectsSection = plugin.getConfig().getConfigurationSection("level-system.effects");
@@ -142,26 +128,21 @@ public class LevelManager {
         return enabled;
     }
 
+    /**
+     * Get the number of blocks that must be mined for one XP
+     * @return The blocks per XP
+     */
+    public int getBlocksPerXp() {
+        return blocksPerXp;
+    }
+
     /**
      * Get the maximum number of blocks that can be mined at once for a level
      * @param level The level
      * @return The maximum number of blocks
      */
     public int getMaxBlocksForLevel(int level) {
-        // If level system is disabled, use the global max blocks
-        if (!enabled) {
-            return plugin.getConfig().getInt("settings.max-blocks", 64);
-        }
-
-        // Find the highest level that is less than or equal to the player's level
-        int maxBlocks = 8; // Default value
-        for (int i = 1; i <= level; i++) {
-            if (maxBlocksPerLevel.containsKey(i)) {
-                maxBlocks = maxBlocksPerLevel.get(i);
-            }
-        }
-
-        return maxBlocks;
+        return plugin.getConfigManager().getSettings().getMaxBlocksForLevel(level);
     }
 
     /**
@@ -180,6 +161,17 @@ public class LevelManager {
      * @param blocksMined The number of blocks mined
      */
     public void addBlocksMined(Player player, int blocksMined) {
+        addBlocksMined(player, blocksMined, blocksMined / blocksPerXp);
+    }
+
+    /**
+     * Add blocks mined to a player's stats with an explicit amount of XP. Used when a vein
+     * is credited in several batches and the caller carries the blocks-per-xp remainder.
+     * @param player The player
+     * @param blocksMined The number of blocks mined
+     * @param xpGained The experience to add
+     */
+    public void addBlocksMined(Player player, int blocksMined, int xpGained) {
         if (!enabled) {
             return;
         }
@@ -192,10 +184,11 @@ public class LevelManager {
         // Add blocks mined
         playerData.addBlocksMined(blocksMined);
 
-        // Calculate XP gained
-        int xpGained = blocksMined / blocksPerXp;
         if (xpGained > 0) {
+            // Also updates the leaderboards
             addExperience(player, xpGained);
+        } else {
+            plugin.getLeaderboardService().updatePlayer(playerData);
         }
     }
 
@@ -219,6 +212,8 @@ public class LevelManager {
 
         // Check for level up
         checkLevelUp(player, playerData);
+
+        plugin.getLeaderboardService().updatePlayer(playerData);
     }
 
     /**
@@ -2,31 +2,52 @@ package org.bischofftv.veinminer.utils;
 
 import org.bischofftv.veinminer.Veinminer;
 import org.bischofftv.veinminer.data.PlayerData;
+import org.bischofftv.veinminer.database.DatabaseManager;
+import org.bischofftv.veinminer.database.MutationJournal;
+import org.bischofftv.veinminer.database.PlayerDataStatements;
 import org.bukkit.entity.Player;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class PlayerDataManager {
 
     private final Veinminer plugin;
     private final Map<UUID, PlayerData> playerDataMap;
+    // Changes of players who left before a failed write could be retried
+    private final Map<UUID, PlayerData> unsavedSnapshots = new HashMap<>();
+    // Snapshots queued for writing whose result hasn't been applied yet, per player
+    private final Map<UUID, List<PlayerData>> writesInFlight = new HashMap<>();
+    private long lastFlushMillis = System.currentTimeMillis();
 
     public PlayerDataManager(Veinminer plugin) {
         this.plugin = plugin;
         this.playerDataMap = new HashMap<>();
+        plugin.getMutationJournal().registerHandler(MutationJournal.TYPE_PLAYER_DATA, this::replayPlayerData);
     }
 
     /**
-     * Load player data from the database
+     * Load player data from the database without blocking the main thread
      * @param player The player
+     * @return A future completed on the main thread once the data is in memory
      */
-    public void loadPlayerData(Player player) {
+    public CompletableFuture<PlayerData> loadPlayerData(Player player) {
         UUID uuid = player.getUniqueId();
         String playerName = player.getName();
 
@@ -41,9 +62,56 @@ public class PlayerDataManager {
                         ", XP=" + existingData.getExperience() +
                         ", Blocks=" + existingData.getBlocksMined());
             }
-            return;
+            return CompletableFuture.completedFuture(existingData);
+        }
+
+        return plugin.getPersistenceService()
+                .supply("load player data for " + playerName, () -> fetchPlayerData(uuid, playerName))
+                .thenApplyAsync(playerData -> putLoadedData(player, playerData), plugin.getPersistenceService().mainThread());
+    }
+
+    /**
+     * Put data loaded off the main thread into memory, unless the player already has data there
+     * @param player The player
+     * @param playerData The loaded data
+     * @return The data now in memory, or the loaded data if the player left
+     */
+    PlayerData putLoadedData(Player player, PlayerData playerData) {
+        UUID uuid = player.getUniqueId();
+
+        // Don't keep data for players who left while it was loading
+        if (!player.isOnline()) {
+            return playerData;
+        }
+
+        // Another load may have finished first
+        PlayerData existingData = playerDataMap.get(uuid);
+        if (existingData != null) {
+            return existingData;
+        }
+
+        // Changes from a failed save are newer than what was just read, apply them on top of it
+        PlayerData unsaved = unsavedSnapshots.remove(uuid);
+        if (unsaved != null) {
+            unsaved.mergeStored(playerData, 0);
+            playerData = unsaved;
         }
+        playerDataMap.put(uuid, playerData);
+        plugin.getLeaderboardService().updatePlayer(playerData);
 
+        if (plugin.isDebugMode()) {
+            plugin.getLogger().info("[DEBUG] Added player data to memory map for " + player.getName());
+        }
+        return playerData;
+    }
+
+    /**
+     * Read player data from the database, creating the row for new players. Runs on the persistence thread.
+     * @param uuid The player UUID
+     * @param playerName The player name
+     * @return The player data, or defaults if the database is not available
+     */
+    PlayerData fetchPlayerData(UUID uuid, String playerName) {
         // Create new player data
         PlayerData playerData = new PlayerData(uuid, playerName);
         // Standardmäßig ist VeinMiner deaktiviert für neue Spieler
@@ -53,6 +121,7 @@ public class PlayerDataManager {
         playerData.setToolEnabled("axe", false);
         playerData.setToolEnabled("shovel", false);
         playerData.setToolEnabled("hoe", false);
+        boolean isNewPlayer = false;
 
         // Try to load from database
         if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnectionValid()) {
@@ -63,7 +132,7 @@ public class PlayerDataManager {
             try {
                 // Setze ein Timeout für das Abrufen der Verbindung
                 long startTime = System.currentTimeMillis();
-                connection = plugin.getDatabaseManager().getConnection();
+                connection = plugin.getDatabaseManager().getReadConnection();
                 long endTime = System.currentTimeMillis();
 
                 if (endTime - startTime > 1000) {
@@ -76,12 +145,10 @@ public class PlayerDataManager {
                     if (plugin.isDebugMode()) {
                         plugin.getLogger().warning("[DEBUG] Failed to get database connection when loading player data for " + playerName);
                     }
-                    playerDataMap.put(uuid, playerData);
-                    return;
+                    return playerData;
                 }
 
-                String sql = "SELECT * FROM " + plugin.getDatabaseManager().getTablePrefix() + "player_data WHERE uuid = ?";
-                statement = connection.prepareStatement(sql);
+                statement = plugin.getDatabaseManager().prepareCached(connection, plugin.getDatabaseManager().getPlayerDataStatements().getSelectSql());
                 statement.setString(1, uuid.toString());
 
                 if (plugin.isDebugMode()) {
@@ -97,6 +164,7 @@ public class PlayerDataManager {
                     playerData.setEfficiencyLevel(resultSet.getInt("efficiency_level"));
                     playerData.setLuckLevel(resultSet.getInt("luck_level"));
                     playerData.setEnergyLevel(resultSet.getInt("energy_level"));
+                    playerData.setVersion(resultSet.getLong("version"));
 
                     // Load tool settings
                     playerData.setToolEnabled("pickaxe", resultSet.getBoolean("pickaxe_enabled"));
@@ -116,46 +184,8 @@ public class PlayerDataManager {
                         plugin.getLogger().info("[DEBUG] No existing data found in database for " + playerName + ", creating new entry");
                     }
 
-                    // Insert new player data
-                    PreparedStatement insertStatement = null;
-                    try {
-                        sql = "INSERT INTO " + plugin.getDatabaseManager().getTablePrefix() +
-                                "player_data (uuid, player_name, veinminer_enabled, level, experience, blocks_mined, " +
-                                "skill_points, efficiency_level, luck_level, energy_level, " +
-                                "pickaxe_enabled, axe_enabled, shovel_enabled, hoe_enabled) " +
-                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-                        insertStatement = connection.prepareStatement(sql);
-                        insertStatement.setString(1, uuid.toString());
-                        insertStatement.setString(2, playerName);
-                        insertStatement.setBoolean(3, playerData.isVeinMinerEnabled());
-                        insertStatement.setInt(4, playerData.getLevel());
-                        insertStatement.setInt(5, playerData.getExperience());
-                        insertStatement.setLong(6, playerData.getBlocksMined());
-                        insertStatement.setInt(7, playerData.getSkillPoints());
-                        insertStatement.setInt(8, playerData.getEfficiencyLevel());
-                        insertStatement.setInt(9, playerData.getLuckLevel());
-                        insertStatement.setInt(10, playerData.getEnergyLevel());
-                        insertStatement.setBoolean(11, playerData.isToolEnabled("pickaxe"));
-                        insertStatement.setBoolean(12, playerData.isToolEnabled("axe"));
-                        insertStatement.setBoolean(13, playerData.isToolEnabled("shovel"));
-                        insertStatement.setBoolean(14, playerData.isToolEnabled("hoe"));
-
-                        insertStatement.executeUpdate();
-                        if (plugin.isDebugMode()) {
-                            plugin.getLogger().info("[DEBUG] Created new player data in database for " + playerName);
-                        }
-                    } finally {
-                        if (insertStatement != null) {
-                            try {
-                                insertStatement.close();
-                            } catch (SQLException e) {
-                                if (plugin.isDebugMode()) {
-                                    plugin.getLogger().warning("Failed to close insert statement: " + e.getMessage());
-                                }
-                            }
-                        }
-                    }
+                    // The row is created by the next flush, in the same upsert batch as other saves
+                    isNewPlayer = true;
                 }
             } catch (SQLException e) {
                 if (plugin.isDebugMode()) {
@@ -164,7 +194,8 @@ public class PlayerDataManager {
                 e.printStackTrace();
             } finally {
                 // Verwende die closeResources-Methode des DatabaseManagers
-                plugin.getDatabaseManager().closeResources(resultSet, statement, connection);
+                plugin.getDatabaseManager().closeResources(resultSet, null, connection);
+                plugin.getDatabaseManager().releaseStatement(statement);
             }
         } else {
             if (plugin.isDebugMode()) {
@@ -172,108 +203,421 @@ public class PlayerDataManager {
             }
         }
 
-        // Add to map
-        playerDataMap.put(uuid, playerData);
-        if (plugin.isDebugMode()) {
-            plugin.getLogger().info("[DEBUG] Added player data to memory map for " + playerName);
+        // What was just read matches the database, a new player still needs their row
+        playerData.clearDirty();
+        if (isNewPlayer) {
+            playerData.markDirty(PlayerData.DIRTY_ALL);
         }
+        return playerData;
     }
 
     /**
-     * Save player data to the database
+     * Save a player's unsaved changes to the database without waiting for the next flush
      * @param uuid The player UUID
+     * @return A future completed once the data has been written
      */
-    public void savePlayerData(UUID uuid) {
+    public CompletableFuture<Void> savePlayerData(UUID uuid) {
         PlayerData playerData = playerDataMap.get(uuid);
         if (playerData == null) {
             if (plugin.isDebugMode()) {
                 plugin.getLogger().warning("[DEBUG] Cannot save player data: No data found in memory for UUID " + uuid);
             }
-            return;
+            return CompletableFuture.completedFuture(null);
+        }
+
+        PlayerData snapshot = takeDirtySnapshot(playerData);
+        if (snapshot == null) {
+            if (plugin.isDebugMode()) {
+                plugin.getLogger().info("[DEBUG] No unsaved changes for " + playerData.getPlayerName());
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return writeBatch(Collections.singletonList(snapshot));
+    }
+
+    /**
+     * Save the unsaved changes of all players in one batch
+     * @return A future completed once all data has been written
+     */
+    public CompletableFuture<Void> saveAllData() {
+        List<PlayerData> snapshots = new ArrayList<>();
+        for (PlayerData playerData : playerDataMap.values()) {
+            PlayerData snapshot = takeDirtySnapshot(playerData);
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
         }
 
+        // Retry earlier writes that failed after the player left
+        snapshots.addAll(unsavedSnapshots.values());
+        unsavedSnapshots.clear();
+        lastFlushMillis = System.currentTimeMillis();
+
         if (plugin.isDebugMode()) {
-            plugin.getLogger().info("[DEBUG] Saving player data for " + playerData.getPlayerName() +
-                    ": Level=" + playerData.getLevel() +
-                    ", XP=" + playerData.getExperience() +
-                    ", Blocks=" + playerData.getBlocksMined());
+            plugin.getLogger().info("[DEBUG] Saving player data, changed: " + snapshots.size() + " of " + playerDataMap.size());
         }
 
-        if (plugin.getDatabaseManager() != null && plugin.getDatabaseManager().isConnectionValid()) {
-            Connection connection = null;
-            PreparedStatement statement = null;
+        if (snapshots.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return writeBatch(snapshots);
+    }
 
-            try {
-                // Setze ein Timeout für das Abrufen der Verbindung
-                long startTime = System.currentTimeMillis();
-                connection = plugin.getDatabaseManager().getConnection();
-                long endTime = System.currentTimeMillis();
+    /**
+     * Flush unsaved changes when the flush interval has passed or enough players have changes.
+     * Called every second, changes to the same player in between collapse into one write.
+     */
+    public void flushIfDue() {
+        // Batches left over from a database outage are written as soon as it is reachable again
+        plugin.getMutationJournal().scheduleReplay();
 
-                if (endTime - startTime > 1000) {
-                    if (plugin.isDebugMode()) {
-                        plugin.getLogger().warning("[DEBUG] Slow connection acquisition for " + playerData.getPlayerName() + ": " + (endTime - startTime) + "ms");
+        long intervalMillis = plugin.getConfigManager().getWriteBehindFlushInterval() * 1000L;
+        int maxPending = plugin.getConfigManager().getWriteBehindMaxPending();
+
+        boolean intervalPassed = System.currentTimeMillis() - lastFlushMillis >= intervalMillis;
+        if (intervalPassed || (maxPending > 0 && getPendingCount() >= maxPending)) {
+            saveAllData();
+        }
+    }
+
+    /**
+     * Get the number of players with changes that haven't been written yet
+     * @return The number of players
+     */
+    public int getPendingCount() {
+        int pending = unsavedSnapshots.size();
+        for (PlayerData playerData : playerDataMap.values()) {
+            if (playerData.isDirty()) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Copy a player's data for saving and clear their dirty flags
+     * @param playerData The player data
+     * @return The copy, or null if nothing changed
+     */
+    private PlayerData takeDirtySnapshot(PlayerData playerData) {
+        if (!playerData.isDirty()) {
+            return null;
+        }
+
+        // Save a copy so changes made while the write is queued don't race with it
+        PlayerData snapshot = playerData.copy();
+        playerData.clearDirty();
+        if ((snapshot.getDirtyMask() & PlayerData.DIRTY_ALL) != 0) {
+            // Assume the versioned update succeeds, so the next flush doesn't conflict with this one
+            playerData.setVersion(snapshot.getVersion() + 1);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Queue snapshots to be written in one transaction. The batch is recorded in the mutation journal
+     * first, so if the write fails it is replayed from there once the database is reachable again.
+     * Without a journal the snapshots are marked dirty again instead.
+     * @param snapshots The snapshots
+     * @return A future completed once the snapshots have been written
+     */
+    private CompletableFuture<Void> writeBatch(List<PlayerData> snapshots) {
+        MutationJournal journal = plugin.getMutationJournal();
+        AtomicLong batchId = new AtomicLong(-1);
+
+        // Profiles preloaded for these players may miss this write
+        ProfileStagingCache stagingCache = plugin.getProfileStagingCache();
+        for (PlayerData snapshot : snapshots) {
+            stagingCache.saveQueued(snapshot.getUuid());
+            writesInFlight.computeIfAbsent(snapshot.getUuid(), key -> new ArrayList<>()).add(snapshot);
+        }
+        return plugin.getPersistenceService()
+                .supply("save player data", () -> {
+                    batchId.set(journal.append(MutationJournal.TYPE_PLAYER_DATA, encodeSnapshots(snapshots)));
+                    try {
+                        // Older batches go first, so the database sees the changes in order
+                        journal.replayPending(batchId.get());
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to replay the mutation journal: " + e.getMessage(), e);
+                    }
+                    List<StoredRow> storedRows;
+                    try {
+                        storedRows = writePlayerData(snapshots, false);
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to save player data for " + snapshots.size() + " players: " + e.getMessage(), e);
+                    }
+                    journal.markApplied(batchId.get());
+                    return storedRows;
+                })
+                .handleAsync((storedRows, error) -> {
+                    for (PlayerData snapshot : snapshots) {
+                        stagingCache.saveFinished(snapshot.getUuid());
+                        List<PlayerData> inFlight = writesInFlight.get(snapshot.getUuid());
+                        if (inFlight != null && inFlight.remove(snapshot) && inFlight.isEmpty()) {
+                            writesInFlight.remove(snapshot.getUuid());
+                        }
+                    }
+                    if (error == null) {
+                        applyStoredRows(storedRows);
+                    } else if (batchId.get() >= 0) {
+                        restoreVersions(snapshots);
+                    } else {
+                        requeue(snapshots);
                     }
+                    return (Void) null;
+                }, plugin.getPersistenceService().mainThread());
+    }
+
+    /**
+     * Undo the version bump of a failed write whose changes are kept in the mutation journal
+     * @param snapshots The snapshots that weren't written
+     */
+    private void restoreVersions(List<PlayerData> snapshots) {
+        for (PlayerData snapshot : snapshots) {
+            PlayerData playerData = playerDataMap.get(snapshot.getUuid());
+            if (playerData != null && playerData.getVersion() == snapshot.getVersion() + 1) {
+                playerData.setVersion(snapshot.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Encode snapshots for the mutation journal
+     * @param snapshots The snapshots
+     * @return The encoded batch
+     */
+    private byte[] encodeSnapshots(List<PlayerData> snapshots) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(snapshots.size());
+            for (PlayerData snapshot : snapshots) {
+                snapshot.writeTo(out);
+            }
+        } catch (IOException e) {
+            // Can't happen with an in-memory stream
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write a batch from the mutation journal. Runs on the persistence thread.
+     * The batch is written like a regular flush, so rows changed by another server in the meantime
+     * aren't overwritten. Every replayed row is read back and merged into the loaded players,
+     * whose data may have been read before the replay.
+     * @param payload The batch from encodeSnapshots
+     * @throws IOException If the batch can't be decoded
+     * @throws SQLException If an SQL error occurs
+     */
+    private void replayPlayerData(byte[] payload) throws IOException, SQLException {
+        List<PlayerData> snapshots = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                snapshots.add(PlayerData.readFrom(in));
+            }
+        }
+
+        List<StoredRow> storedRows = writePlayerData(snapshots, true);
+        plugin.getPersistenceService().mainThread().execute(() -> applyStoredRows(storedRows));
+
+        if (plugin.isDebugMode()) {
+            plugin.getLogger().info("[DEBUG] Replayed player data for " + snapshots.size() + " players from the mutation journal");
+        }
+    }
+
+    /**
+     * Keep the changes of a failed write so the next flush retries them
+     * @param snapshots The snapshots that weren't written
+     */
+    private void requeue(List<PlayerData> snapshots) {
+        for (PlayerData snapshot : snapshots) {
+            PlayerData playerData = playerDataMap.get(snapshot.getUuid());
+            if (playerData != null) {
+                // The data in memory is newer, only the flags, increments and version need to be restored
+                playerData.markDirty(snapshot.getDirtyMask());
+                playerData.addPendingIncrements(snapshot.getExperienceDelta(), snapshot.getBlocksMinedDelta());
+                if (playerData.getVersion() == snapshot.getVersion() + 1) {
+                    playerData.setVersion(snapshot.getVersion());
                 }
+            } else {
+                unsavedSnapshots.merge(snapshot.getUuid(), snapshot, (older, newer) -> {
+                    newer.markDirty(older.getDirtyMask());
+                    newer.addPendingIncrements(older.getExperienceDelta(), older.getBlocksMinedDelta());
+                    return newer;
+                });
+            }
+        }
+    }
 
-                if (connection == null) {
-                    if (plugin.isDebugMode()) {
-                        plugin.getLogger().warning("[DEBUG] Failed to get database connection when saving player data for " + playerData.getPlayerName());
+    /**
+     * Bring players up to date with rows that were created or changed by another server during a write
+     * @param storedRows The rows read back after the write
+     */
+    private void applyStoredRows(List<StoredRow> storedRows) {
+        for (StoredRow row : storedRows) {
+            UUID uuid = row.snapshot.getUuid();
+            PlayerData playerData = playerDataMap.get(uuid);
+            if (playerData != null) {
+                // Writes queued after the row was read aren't part of it yet
+                int inFlightMask = 0;
+                for (PlayerData snapshot : writesInFlight.getOrDefault(uuid, Collections.emptyList())) {
+                    inFlightMask |= snapshot.getDirtyMask() & PlayerData.DIRTY_ALL;
+                    row.stored.setExperience(row.stored.getExperience() + snapshot.getExperienceDelta());
+                    row.stored.setBlocksMined(row.stored.getBlocksMined() + snapshot.getBlocksMinedDelta());
+                }
+                playerData.mergeStored(row.stored, row.rejectedMask | inFlightMask);
+                // Another server may have added to the counters
+                plugin.getLeaderboardService().updatePlayer(playerData);
+            } else {
+                // The player left, keep only what still has to be written
+                PlayerData snapshot = row.snapshot;
+                snapshot.clearDirty();
+                snapshot.mergeStored(row.stored, row.rejectedMask);
+                if (snapshot.isDirty()) {
+                    requeue(Collections.singletonList(snapshot));
+                }
+            }
+
+            if (plugin.isDebugMode() && row.rejectedMask != 0) {
+                plugin.getLogger().info("[DEBUG] Player data for " + row.snapshot.getPlayerName() +
+                        " was changed by another server, merged with version " + row.stored.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Write snapshots as JDBC batches in a single transaction. Runs on the persistence thread.
+     * Level, skills and settings are written with a versioned update per changed column group,
+     * experience and blocks mined as increments, so concurrent writes from other servers add up.
+     * Rows that don't exist yet are created with an upsert.
+     * @param snapshots The snapshots of the player data
+     * @param readBackAll Whether to read back every written row, not only the created or rejected ones
+     * @return The rows read back for players whose row was created or changed by another server
+     * @throws SQLException If an SQL error occurs
+     */
+    private List<StoredRow> writePlayerData(List<PlayerData> snapshots, boolean readBackAll) throws SQLException {
+        // Group by dirty mask, each mask has its own update statement
+        Map<Integer, List<PlayerData>> byMask = new HashMap<>();
+        List<PlayerData> increments = new ArrayList<>();
+        for (PlayerData snapshot : snapshots) {
+            int mask = snapshot.getDirtyMask() & PlayerData.DIRTY_ALL;
+            if (mask != 0) {
+                byMask.computeIfAbsent(mask, key -> new ArrayList<>()).add(snapshot);
+            }
+            // Counters that were set outright are part of the versioned update
+            if (snapshot.hasPendingIncrements() && (mask & PlayerData.DIRTY_COUNTERS) == 0) {
+                increments.add(snapshot);
+            }
+        }
+
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        PlayerDataStatements statements = databaseManager.getPlayerDataStatements();
+        long startTime = System.currentTimeMillis();
+        List<StoredRow> storedRows = databaseManager.executeInTransaction(connection -> {
+            // Snapshots whose row didn't match, the row is either missing or has a newer version
+            Map<UUID, PlayerData> unmatched = new LinkedHashMap<>();
+
+            for (Map.Entry<Integer, List<PlayerData>> group : byMask.entrySet()) {
+                int mask = group.getKey();
+                PreparedStatement statement = databaseManager.prepareCached(connection, statements.getVersionedUpdateSql(mask));
+                try {
+                    for (PlayerData playerData : group.getValue()) {
+                        statements.bindVersionedUpdate(statement, playerData, mask);
+                        statement.addBatch();
                     }
-                    return;
+                    collectUnmatched(statement.executeBatch(), group.getValue(), unmatched);
+                } finally {
+                    databaseManager.releaseStatement(statement);
                 }
+            }
 
-                String sql = "UPDATE " + plugin.getDatabaseManager().getTablePrefix() + "player_data SET " +
-                        "player_name = ?, veinminer_enabled = ?, level = ?, experience = ?, blocks_mined = ?, " +
-                        "skill_points = ?, efficiency_level = ?, luck_level = ?, energy_level = ?, " +
-                        "pickaxe_enabled = ?, axe_enabled = ?, shovel_enabled = ?, hoe_enabled = ? " +
-                        "WHERE uuid = ?";
-
-                statement = connection.prepareStatement(sql);
-                statement.setString(1, playerData.getPlayerName());
-                statement.setBoolean(2, playerData.isVeinMinerEnabled());
-                statement.setInt(3, playerData.getLevel());
-                statement.setInt(4, playerData.getExperience());
-                statement.setLong(5, playerData.getBlocksMined());
-                statement.setInt(6, playerData.getSkillPoints());
-                statement.setInt(7, playerData.getEfficiencyLevel());
-                statement.setInt(8, playerData.getLuckLevel());
-                statement.setInt(9, playerData.getEnergyLevel());
-                statement.setBoolean(10, playerData.isToolEnabled("pickaxe"));
-                statement.setBoolean(11, playerData.isToolEnabled("axe"));
-                statement.setBoolean(12, playerData.isToolEnabled("shovel"));
-                statement.setBoolean(13, playerData.isToolEnabled("hoe"));
-                statement.setString(14, uuid.toString());
-
-                int rowsUpdated = statement.executeUpdate();
-                if (plugin.isDebugMode()) {
-                    plugin.getLogger().info("[DEBUG] Saved player data to database for " + playerData.getPlayerName() +
-                            ", rows updated: " + rowsUpdated);
+            if (!increments.isEmpty()) {
+                PreparedStatement statement = databaseManager.prepareCached(connection, statements.getIncrementSql());
+                try {
+                    for (PlayerData playerData : increments) {
+                        statements.bindIncrement(statement, playerData);
+                        statement.addBatch();
+                    }
+                    collectUnmatched(statement.executeBatch(), increments, unmatched);
+                } finally {
+                    databaseManager.releaseStatement(statement);
                 }
-            } catch (SQLException e) {
-                if (plugin.isDebugMode()) {
-                    plugin.getLogger().warning("Failed to save player data for " + playerData.getPlayerName() + ": " + e.getMessage());
+            }
+
+            List<StoredRow> rows = new ArrayList<>();
+            for (PlayerData snapshot : unmatched.values()) {
+                PlayerData stored = readStoredRow(connection, statements, snapshot.getUuid());
+                int rejectedMask = snapshot.getDirtyMask() & PlayerData.DIRTY_ALL;
+                if (stored == null) {
+                    // New player, the snapshot holds everything including the increments
+                    PreparedStatement statement = databaseManager.prepareCached(connection, statements.getUpsertSql(PlayerData.DIRTY_ALL));
+                    try {
+                        statements.bindUpsert(statement, snapshot, PlayerData.DIRTY_ALL);
+                        statement.executeUpdate();
+                    } finally {
+                        databaseManager.releaseStatement(statement);
+                    }
+                    stored = readStoredRow(connection, statements, snapshot.getUuid());
+                    rejectedMask = 0;
+                }
+                if (stored != null) {
+                    rows.add(new StoredRow(snapshot, stored, rejectedMask));
                 }
-                e.printStackTrace();
-            } finally {
-                // Verwende die closeResources-Methode des DatabaseManagers
-                plugin.getDatabaseManager().closeResources(null, statement, connection);
             }
-        } else {
-            if (plugin.isDebugMode()) {
-                plugin.getLogger().warning("[DEBUG] Database connection not available when saving player data for " + playerData.getPlayerName());
+
+            if (readBackAll) {
+                for (PlayerData snapshot : snapshots) {
+                    if (!unmatched.containsKey(snapshot.getUuid())) {
+                        PlayerData stored = readStoredRow(connection, statements, snapshot.getUuid());
+                        if (stored != null) {
+                            rows.add(new StoredRow(snapshot, stored, 0));
+                        }
+                    }
+                }
             }
+            return rows;
+        });
+
+        if (plugin.isDebugMode()) {
+            plugin.getLogger().info("[DEBUG] Saved " + snapshots.size() + " players in " + (byMask.size() + (increments.isEmpty() ? 0 : 1)) +
+                    " statements, rows created or merged: " + storedRows.size() + ", took " + (System.currentTimeMillis() - startTime) + "ms");
         }
+        return storedRows;
     }
 
     /**
-     * Save all player data to the database
+     * Remember the snapshots whose statement in a batch didn't update a row
+     * @param counts The update counts of the batch
+     * @param snapshots The snapshots in batch order
+     * @param unmatched The map to add the snapshots to
      */
-    public void saveAllData() {
-        if (plugin.isDebugMode()) {
-            plugin.getLogger().info("[DEBUG] Saving all player data, count: " + playerDataMap.size());
+    private void collectUnmatched(int[] counts, List<PlayerData> snapshots, Map<UUID, PlayerData> unmatched) {
+        for (int i = 0; i < counts.length; i++) {
+            // SUCCESS_NO_INFO means the driver didn't count the rows, only 0 means nothing matched
+            if (counts[i] == 0) {
+                unmatched.putIfAbsent(snapshots.get(i).getUuid(), snapshots.get(i));
+            }
         }
-        for (UUID uuid : playerDataMap.keySet()) {
-            savePlayerData(uuid);
+    }
+
+    /**
+     * Read a player's row inside a transaction
+     * @param connection The connection
+     * @param statements The player_data statements
+     * @param uuid The player UUID
+     * @return The stored data, or null if there is no row
+     * @throws SQLException If an SQL error occurs
+     */
+    private PlayerData readStoredRow(Connection connection, PlayerDataStatements statements, UUID uuid) throws SQLException {
+        PreparedStatement statement = plugin.getDatabaseManager().prepareCached(connection, statements.getSelectSql());
+        try {
+            statement.setString(1, uuid.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? statements.read(resultSet, uuid) : null;
+            }
+        } finally {
+            plugin.getDatabaseManager().releaseStatement(statement);
         }
     }
 
@@ -361,8 +705,9 @@ public class PlayerDataManager {
     /**
      * Force reload player data from database
      * @param player The player
+     * @return A future completed on the main thread once the fresh data is in memory
      */
-    public void forceReloadPlayerData(Player player) {
+    public CompletableFuture<PlayerData> forceReloadPlayerData(Player player) {
         UUID uuid = player.getUniqueId();
         String playerName = player.getName();
 
@@ -374,11 +719,12 @@ public class PlayerDataManager {
         playerDataMap.remove(uuid);
 
         // Load fresh data
-        loadPlayerData(player);
-
-        if (plugin.isDebugMode()) {
-            plugin.getLogger().info("[DEBUG] Player data force reloaded for " + playerName);
-        }
+        return loadPlayerData(player).thenApply(playerData -> {
+            if (plugin.isDebugMode()) {
+                plugin.getLogger().info("[DEBUG] Player data force reloaded for " + playerName);
+            }
+            return playerData;
+        });
     }
 
     /**
@@ -470,4 +816,20 @@ public class PlayerDataManager {
             }
         }
     }
+
+    /**
+     * A row read back after a write, with the snapshot that was written
+     */
+    private static final class StoredRow {
+        private final PlayerData snapshot;
+        private final PlayerData stored;
+        // Column groups whose versioned update didn't match
+        private final int rejectedMask;
+
+        private StoredRow(PlayerData snapshot, PlayerData stored, int rejectedMask) {
+            this.snapshot = snapshot;
+            this.stored = stored;
+            this.rejectedMask = rejectedMask;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package org.bischofftv.veinminer.utils;
+
+import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.achievements.AchievementManager;
+import org.bischofftv.veinminer.data.PlayerData;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds player profiles loaded during AsyncPlayerPreLoginEvent until the player joins.
+ * The login thread reads the profile itself on a read connection, so logins don't queue behind
+ * the writes on the persistence thread. On join the data only has to be moved into memory
+ * and vein mining works from the first tick. Profiles of logins that never complete expire.
+ * <p>
+ * A profile is only used if no save for the player was queued or running since the read started,
+ * e.g. the quit save of a session that was still online, and no batches from the mutation journal
+ * were waiting to be replayed. Otherwise the join loads the profile on the persistence thread, after the
+ * save, and replayed batches are merged into it once they are written.
+ */
+public class ProfileStagingCache {
+
+    // How long a loaded profile waits for its player to join
+    private static final long TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Veinminer plugin;
+    // Written by login threads, read on the main thread
+    private final Map<UUID, StagedProfile> staged = new ConcurrentHashMap<>();
+    // Preloads that are still reading, set to true if a save for the player is queued meanwhile
+    private final Map<UUID, AtomicBoolean> preloading = new ConcurrentHashMap<>();
+    // Saves queued on the persistence thread that haven't finished yet, per player
+    private final Map<UUID, Integer> savesInFlight = new ConcurrentHashMap<>();
+
+    public ProfileStagingCache(Veinminer plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load a player's data and achievements and keep them until the player joins.
+     * Blocks the calling login thread, never call this on the main thread.
+     * @param uuid The player UUID
+     * @param playerName The player name
+     */
+    public void preload(UUID uuid, String playerName) {
+        purgeExpired();
+
+        AtomicBoolean stale = new AtomicBoolean();
+        preloading.put(uuid, stale);
+        try {
+            // A save that is still running may not be visible to a read connection yet
+            if (savesInFlight.containsKey(uuid)) {
+                if (plugin.isDebugMode()) {
+                    plugin.debug("Not preloading profile for " + playerName + ", a save is still running");
+                }
+                return;
+            }
+            // Nor may the player's changes in batches that haven't been replayed yet
+            if (plugin.getMutationJournal().getPendingBatches() > 0) {
+                if (plugin.isDebugMode()) {
+                    plugin.debug("Not preloading profile for " + playerName + ", the mutation journal has batches to replay");
+                }
+                return;
+            }
+
+            boolean loadAchievements = plugin.getAchievementManager().isEnabled();
+            PlayerData playerData = plugin.getPlayerDataManager().fetchPlayerData(uuid, playerName);
+            Map<String, Integer> achievements = new HashMap<>();
+            Map<String, Boolean> claimed = new HashMap<>();
+            if (loadAchievements) {
+                plugin.getAchievementManager().readPlayerAchievements(uuid, playerName, achievements, claimed);
+            }
+
+            // Staged before the preload is unregistered, so a save queued in between always sees one of them
+            StagedProfile profile = new StagedProfile(playerData, loadAchievements, achievements, claimed);
+            staged.put(uuid, profile);
+            preloading.remove(uuid, stale);
+            if (stale.get()) {
+                staged.remove(uuid, profile);
+                return;
+            }
+
+            if (plugin.isDebugMode()) {
+                plugin.debug("Preloaded profile for " + playerName);
+            }
+        } catch (RuntimeException e) {
+            // The join handler loads the profile instead
+            if (plugin.isDebugMode()) {
+                plugin.getLogger().warning("[DEBUG] Failed to preload profile for " + playerName + ": " + e.getMessage());
+            }
+        } finally {
+            preloading.remove(uuid, stale);
+        }
+    }
+
+    /**
+     * Record that a save for a player was queued. A profile read before it finishes may be outdated,
+     * so it is dropped and the join loads the profile again.
+     * @param uuid The player UUID
+     */
+    public void saveQueued(UUID uuid) {
+        savesInFlight.merge(uuid, 1, Integer::sum);
+
+        AtomicBoolean stale = preloading.get(uuid);
+        if (stale != null) {
+            stale.set(true);
+        }
+        staged.remove(uuid);
+    }
+
+    /**
+     * Record that a save queued with saveQueued finished, whether it succeeded or not
+     * @param uuid The player UUID
+     */
+    public void saveFinished(UUID uuid) {
+        savesInFlight.computeIfPresent(uuid, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * Move a player's preloaded profile into the player data and achievement managers
+     * @param player The player who joined
+     * @return True if a profile was waiting, false if the data still has to be loaded
+     */
+    public boolean promote(Player player) {
+        StagedProfile profile = staged.remove(player.getUniqueId());
+        if (profile == null || profile.isExpired()) {
+            return false;
+        }
+
+        plugin.getPlayerDataManager().putLoadedData(player, profile.playerData);
+
+        AchievementManager achievementManager = plugin.getAchievementManager();
+        if (achievementManager.isEnabled()) {
+            if (!profile.hasAchievements) {
+                // Achievements were enabled by a reload after the login
+                achievementManager.loadPlayerAchievements(player);
+            } else {
+                achievementManager.applyPlayerAchievements(player.getUniqueId(), player.getName(), profile.achievements, profile.claimed);
+            }
+        }
+
+        if (plugin.isDebugMode()) {
+            plugin.debug("Promoted preloaded profile for " + player.getName());
+        }
+        return true;
+    }
+
+    /**
+     * Drop profiles of logins that never turned into a join
+     */
+    private void purgeExpired() {
+        staged.values().removeIf(StagedProfile::isExpired);
+    }
+
+    /**
+     * A profile loaded before the player joined
+     */
+    private static final class StagedProfile {
+        private final PlayerData playerData;
+        private final boolean hasAchievements;
+        private final Map<String, Integer> achievements;
+        private final Map<String, Boolean> claimed;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private StagedProfile(PlayerData playerData, boolean hasAchievements,
+                              Map<String, Integer> achievements, Map<String, Boolean> claimed) {
+            this.playerData = playerData;
+            this.hasAchievements = hasAchievements;
+            this.achievements = achievements;
+            this.claimed = claimed;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt > TTL_MILLIS;
+        }
+    }
+}
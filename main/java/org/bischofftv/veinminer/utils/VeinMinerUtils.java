@@ -1,6 +1,7 @@
 package org.bischofftv.veinminer.utils;
 
 import org.bischofftv.veinminer.Veinminer;
+import org.bischofftv.veinminer.skills.SkillRollEngine;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.Registry;
@@ -135,13 +136,6 @@ public class VeinMinerUtils {
         if (unbreakingLevel <= 0) return damage;
 
         // Apply unbreaking formula: 100/(unbreaking+1)% chance to take damage
-        int actualDamage = 0;
-        for (int i = 0; i < damage; i++) {
-            if (Math.random() * 100 < (100.0 / (unbreakingLevel + 1))) {
-                actualDamage++;
-            }
-        }
-
-        return actualDamage;
+        return SkillRollEngine.binomial(damage, 1.0 / (unbreakingLevel + 1));
     }
 }
\ No newline at end of file
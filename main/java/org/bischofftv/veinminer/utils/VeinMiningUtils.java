@@ -1,57 +1,27 @@
 package org.bischofftv.veinminer.utils;
 
+import org.bischofftv.veinminer.mining.VeinSearchEngine;
+import org.bischofftv.veinminer.mining.VeinSearchResult;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class VeinMiningUtils {
 
     public static Collection<Block> findConnectedBlocks(Block startBlock, int maxBlocks, Set<Material> allowedMaterials) {
-        Set<Block> connectedBlocks = new HashSet<>();
-        Queue<Block> queue = new LinkedList<>();
-
         Material targetType = startBlock.getType();
         if (!allowedMaterials.contains(targetType)) {
-            return connectedBlocks;
+            return new ArrayList<>();
         }
 
-        queue.add(startBlock);
-        connectedBlocks.add(startBlock);
-
-        while (!queue.isEmpty() && connectedBlocks.size() < maxBlocks) {
-            Block currentBlock = queue.poll();
-
-            // Check all 6 adjacent blocks (not diagonals)
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dy = -1; dy <= 1; dy++) {
-                    for (int dz = -1; dz <= 1; dz++) {
-                        // Skip diagonals and the block itself
-                        if (Math.abs(dx) + Math.abs(dy) + Math.abs(dz) != 1) {
-                            continue;
-                        }
-
-                        Block adjacentBlock = currentBlock.getRelative(dx, dy, dz);
-
-                        // Check if the block is of the same type and not already processed
-                        if (adjacentBlock.getType() == targetType && !connectedBlocks.contains(adjacentBlock)) {
-                            connectedBlocks.add(adjacentBlock);
-                            queue.add(adjacentBlock);
-
-                            // Stop if we've reached the maximum number of blocks
-                            if (connectedBlocks.size() >= maxBlocks) {
-                                break;
-                            }
-                        }
-                    }
-                    if (connectedBlocks.size() >= maxBlocks) break;
-                }
-                if (connectedBlocks.size() >= maxBlocks) break;
-            }
-        }
+        // Check only the 6 adjacent blocks (not diagonals)
+        VeinSearchResult result = VeinSearchEngine.get().search(startBlock.getWorld(),
+                startBlock.getX(), startBlock.getY(), startBlock.getZ(), targetType, false, maxBlocks);
 
-        return connectedBlocks;
+        return result.toBlocks(startBlock.getWorld(), true);
     }
 
     public static Collection<ItemStack> getSilkTouchDrops(Block block) {
@@ -202,4 +172,34 @@ public class VeinMiningUtils {
 
         return drops;
     }
+
+    /**
+     * Get the experience vanilla drops when an ore is mined without Silk Touch
+     * @param material The ore material
+     * @return A random experience amount in the vanilla range, or 0 if the block drops none
+     */
+    public static int getOreExperience(Material material) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (material) {
+            case COAL_ORE:
+            case DEEPSLATE_COAL_ORE:
+                return random.nextInt(0, 3);
+            case DIAMOND_ORE:
+            case DEEPSLATE_DIAMOND_ORE:
+            case EMERALD_ORE:
+            case DEEPSLATE_EMERALD_ORE:
+                return random.nextInt(3, 8);
+            case LAPIS_ORE:
+            case DEEPSLATE_LAPIS_ORE:
+            case NETHER_QUARTZ_ORE:
+                return random.nextInt(2, 6);
+            case REDSTONE_ORE:
+            case DEEPSLATE_REDSTONE_ORE:
+                return random.nextInt(1, 6);
+            case NETHER_GOLD_ORE:
+                return random.nextInt(0, 2);
+            default:
+                return 0;
+        }
+    }
 }
\ No newline at end of file